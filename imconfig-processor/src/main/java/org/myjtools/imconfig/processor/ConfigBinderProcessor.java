@@ -0,0 +1,390 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.processor;
+
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+
+/**
+ * Annotation processor that generates an implementation of
+ * <code>org.myjtools.imconfig.ConfigBinder</code> for every type annotated with
+ * <code>@ConfigClass</code>, and registers it as a service.
+ * <p>
+ * The generated binders follow the same rules as the reflective binder used by
+ * <code>Config.getObject</code>, but access the constructor and fields directly. Types whose
+ * members are not accessible from their own package (such as private fields) are skipped
+ * with a warning, and are bound reflectively at runtime.
+ */
+@SupportedAnnotationTypes(ConfigBinderProcessor.CONFIG_CLASS)
+public class ConfigBinderProcessor extends AbstractProcessor {
+
+    static final String CONFIG_CLASS = "org.myjtools.imconfig.ConfigClass";
+    static final String CONFIG_PROPERTY = "org.myjtools.imconfig.ConfigProperty";
+    static final String CONFIG_BINDER = "org.myjtools.imconfig.ConfigBinder";
+
+    private final Set<String> binders = new TreeSet<>();
+
+
+    private record Member(String name, String key, TypeMirror type) { }
+
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(round.getElementsAnnotatedWith(annotation))) {
+                try {
+                    generateBinder(type);
+                } catch (IOException e) {
+                    error(type, "Cannot generate binder: " + e.getMessage());
+                }
+            }
+        }
+        if (round.processingOver() && !binders.isEmpty()) {
+            writeServiceFile();
+        }
+        return false;
+    }
+
+
+    private void generateBinder(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getKind() == ElementKind.INTERFACE) {
+            warning(type, "@ConfigClass type is abstract, no binder generated");
+            return;
+        }
+        if (!isAccessible(type)) {
+            warning(type, "@ConfigClass type is not accessible from its package, no binder generated");
+            return;
+        }
+        List<Member> parameters = new ArrayList<>();
+        List<Member> fields = new ArrayList<>();
+        if (type.getKind() == ElementKind.RECORD) {
+            for (RecordComponentElement component : type.getRecordComponents()) {
+                parameters.add(member(component));
+            }
+        } else {
+            ExecutableElement constructor = annotatedConstructor(type);
+            if (constructor == null) {
+                constructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                    .filter(candidate -> candidate.getParameters().isEmpty())
+                    .findFirst()
+                    .orElse(null);
+                if (constructor == null) {
+                    error(type, "@ConfigClass type requires a constructor without parameters");
+                    return;
+                }
+                for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                    if (field.getModifiers().contains(Modifier.STATIC)) {
+                        continue;
+                    }
+                    if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)) {
+                        warning(field, "Field is private or final, no binder generated for " + type);
+                        return;
+                    }
+                    fields.add(member(field));
+                }
+            } else {
+                for (VariableElement parameter : constructor.getParameters()) {
+                    parameters.add(member(parameter));
+                }
+            }
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                warning(constructor, "Constructor is private, no binder generated for " + type);
+                return;
+            }
+        }
+        for (Member member : parameters) {
+            if (!isSupported(member.type())) {
+                warning(type, "Member " + member.name() + " requires the runtime binder, no binder generated");
+                return;
+            }
+        }
+        for (Member member : fields) {
+            if (!isSupported(member.type())) {
+                warning(type, "Member " + member.name() + " requires the runtime binder, no binder generated");
+                return;
+            }
+        }
+        writeBinder(type, parameters, fields);
+    }
+
+
+    private void writeBinder(TypeElement type, List<Member> parameters, List<Member> fields) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binderName = binderName(type);
+        String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        String typeName = type.getQualifiedName().toString();
+        List<Member> members = new ArrayList<>(parameters);
+        members.addAll(fields);
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedBinderName, type).openWriter();
+             PrintWriter out = new PrintWriter(writer)) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("// Generated by " + ConfigBinderProcessor.class.getName() + ", do not modify");
+            out.println("public final class " + binderName + " implements " + CONFIG_BINDER + "<" + typeName + "> {");
+            out.println();
+            for (int i = 0; i < members.size(); i++) {
+                out.println("    private static final org.myjtools.imconfig.ConfigKey KEY_" + i +
+                    " = org.myjtools.imconfig.Config.key(" +
+                    processingEnv.getElementUtils().getConstantExpression(members.get(i).key()) + ");");
+            }
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<" + typeName + "> type() {");
+            out.println("        return " + typeName + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            if (members.stream().anyMatch(member -> isUncheckedCast(member.type()))) {
+                out.println("    @SuppressWarnings(\"unchecked\")");
+            }
+            out.println("    public " + typeName + " bind(org.myjtools.imconfig.Config config) {");
+            List<String> statements = new ArrayList<>();
+            StringJoiner arguments = new StringJoiner(",\n            ", "\n            ", "\n        ");
+            for (int i = 0; i < parameters.size(); i++) {
+                arguments.add(valueExpression(parameters.get(i).type(), i, statements));
+            }
+            statements.add(typeName + " instance = new " + typeName + "(" +
+                (parameters.isEmpty() ? "" : arguments.toString()) + ");");
+            for (int i = 0; i < fields.size(); i++) {
+                Member field = fields.get(i);
+                int key = parameters.size() + i;
+                if (field.type().getKind().isPrimitive()) {
+                    // primitive fields keep their initial value when the property is not present
+                    statements.add("var value" + key + " = config.get(KEY_" + key + ", " + classLiteral(field.type()) + ");");
+                    statements.add("if (value" + key + ".isPresent()) {");
+                    statements.add("    instance." + field.name() + " = value" + key + ".get();");
+                    statements.add("}");
+                } else {
+                    String value = valueExpression(field.type(), key, statements);
+                    statements.add("instance." + field.name() + " = " + value + ";");
+                }
+            }
+            statements.add("return instance;");
+            for (String statement : statements) {
+                out.println("        " + statement);
+            }
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+        binders.add(qualifiedBinderName);
+    }
+
+
+    /*
+     * Collections and optionals of nested objects, and maps, are left to the runtime binder
+     */
+    private boolean isSupported(TypeMirror type) {
+        if (collectionType(type) == null && !isOptional(type)) {
+            return !isMap(type);
+        }
+        var arguments = ((DeclaredType) type).getTypeArguments();
+        return arguments.size() == 1 &&
+            arguments.get(0).getKind() == TypeKind.DECLARED &&
+            ((DeclaredType) arguments.get(0)).getTypeArguments().isEmpty() &&
+            !isConfigClass(arguments.get(0));
+    }
+
+
+    private String collectionType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        String name = processingEnv.getTypeUtils().erasure(type).toString();
+        return switch (name) {
+            case "java.util.List", "java.util.Collection" -> "getList";
+            case "java.util.Set" -> "getSet";
+            default -> null;
+        };
+    }
+
+
+    private boolean isOptional(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED &&
+            processingEnv.getTypeUtils().erasure(type).toString().equals("java.util.Optional");
+    }
+
+
+    private boolean isMap(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED &&
+            processingEnv.getTypeUtils().erasure(type).toString().equals("java.util.Map");
+    }
+
+
+    private static boolean isConfigClass(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED &&
+            ((DeclaredType) type).asElement().getAnnotationMirrors().stream().anyMatch(annotation ->
+                ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONFIG_CLASS)
+            );
+    }
+
+
+    /*
+     * Nested objects are read from an inner view, declared by a previous statement
+     */
+    private String valueExpression(TypeMirror type, int key, List<String> statements) {
+        if (isConfigClass(type)) {
+            statements.add("org.myjtools.imconfig.Config inner" + key + " = config.inner(KEY_" + key + ".name());");
+            return "inner" + key + ".isEmpty() ? null : inner" + key + ".getObject(" + classLiteral(type) + ")";
+        }
+        String collection = collectionType(type);
+        if (collection != null) {
+            TypeMirror element = ((DeclaredType) type).getTypeArguments().get(0);
+            String values = "config." + collection + "(KEY_" + key + ".name(), " + classLiteral(element) + ")";
+            return collection.equals("getSet") ? "java.util.Collections.unmodifiableSet(" + values + ")" : values;
+        }
+        if (isOptional(type)) {
+            TypeMirror element = ((DeclaredType) type).getTypeArguments().get(0);
+            return "config.get(KEY_" + key + ", " + classLiteral(element) + ")";
+        }
+        String value = "config.get(KEY_" + key + ", " + classLiteral(type) + ")";
+        if (type.getKind().isPrimitive()) {
+            return value + ".orElse(" + zero(type.getKind()) + ")";
+        }
+        return (isUncheckedCast(type) ? "(" + type + ") " : "") + value + ".orElse(null)";
+    }
+
+
+    /*
+     * Values of generic types (other than collections) are read using their raw type
+     */
+    private boolean isUncheckedCast(TypeMirror type) {
+        if (type.getKind().isPrimitive() || isConfigClass(type) || collectionType(type) != null || isOptional(type)) {
+            return false;
+        }
+        var types = processingEnv.getTypeUtils();
+        return !types.isSameType(type, types.erasure(type));
+    }
+
+
+    private String classLiteral(TypeMirror type) {
+        var types = processingEnv.getTypeUtils();
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName() + ".class";
+        }
+        return types.erasure(type) + ".class";
+    }
+
+
+    private static String zero(TypeKind kind) {
+        return switch (kind) {
+            case BOOLEAN -> "false";
+            case CHAR -> "'\\0'";
+            case BYTE -> "(byte) 0";
+            case SHORT -> "(short) 0";
+            case LONG -> "0L";
+            case FLOAT -> "0F";
+            case DOUBLE -> "0D";
+            default -> "0";
+        };
+    }
+
+
+    private Member member(Element element) {
+        String key = element.getSimpleName().toString();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONFIG_PROPERTY)) {
+                for (var entry : annotation.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        key = entry.getValue().getValue().toString();
+                    }
+                }
+            }
+        }
+        return new Member(element.getSimpleName().toString(), key, element.asType());
+    }
+
+
+    private ExecutableElement annotatedConstructor(TypeElement type) {
+        ExecutableElement selected = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getParameters().isEmpty() &&
+                constructor.getParameters().stream().allMatch(this::hasConfigProperty)
+            ) {
+                if (selected != null) {
+                    error(type, "@ConfigClass type has more than one constructor annotated with @ConfigProperty");
+                }
+                selected = constructor;
+            }
+        }
+        return selected;
+    }
+
+
+    private boolean hasConfigProperty(Element element) {
+        return element.getAnnotationMirrors().stream().anyMatch(annotation ->
+            ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONFIG_PROPERTY)
+        );
+    }
+
+
+    private static boolean isAccessible(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+
+    private static String binderName(TypeElement type) {
+        Deque<String> names = new ArrayDeque<>();
+        Element element = type;
+        while (element instanceof TypeElement) {
+            names.addFirst(element.getSimpleName().toString());
+            element = element.getEnclosingElement();
+        }
+        return String.join("_", names) + "ConfigBinder";
+    }
+
+
+    private void writeServiceFile() {
+        try (Writer writer = processingEnv.getFiler()
+            .createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + CONFIG_BINDER)
+            .openWriter()
+        ) {
+            for (String binder : binders) {
+                writer.write(binder + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot register binders: " + e.getMessage());
+        }
+    }
+
+
+    private void warning(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
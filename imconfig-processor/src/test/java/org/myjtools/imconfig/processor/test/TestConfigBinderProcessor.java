@@ -0,0 +1,173 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.processor.test;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigBinder;
+import org.myjtools.imconfig.processor.ConfigBinderProcessor;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class TestConfigBinderProcessor {
+
+    private static final String SERVER = """
+        package sample;
+
+        import org.myjtools.imconfig.ConfigClass;
+        import org.myjtools.imconfig.ConfigProperty;
+        import java.util.List;
+
+        @ConfigClass
+        public record Server(String host, @ConfigProperty("port.number") int port, List<String> tags) { }
+        """;
+
+    private static final String APPLICATION = """
+        package sample;
+
+        import org.myjtools.imconfig.ConfigClass;
+        import java.util.Set;
+
+        @ConfigClass
+        public class Application {
+            public String name;
+            public int workers = 4;
+            public Set<String> profiles;
+            public Server server;
+        }
+        """;
+
+    private static final String SKIPPED = """
+        package sample;
+
+        import org.myjtools.imconfig.ConfigClass;
+
+        @ConfigClass
+        public class Skipped {
+            private String name;
+        }
+        """;
+
+    private static final String OPTIONAL = """
+        package sample;
+
+        import org.myjtools.imconfig.ConfigClass;
+        import java.util.Optional;
+
+        @ConfigClass
+        public record Opt(Optional<Integer> port, String host) { }
+        """;
+
+    @TempDir
+    Path folder;
+
+
+    @Test
+    void bindersAreGeneratedRegisteredAndBound() throws Exception {
+        var diagnostics = compile(Map.of("Server", SERVER, "Application", APPLICATION));
+        assertThat(diagnostics).isEmpty();
+        assertThat(Files.readAllLines(folder.resolve("classes/META-INF/services/" + ConfigBinder.class.getName())))
+            .containsExactly("sample.ApplicationConfigBinder", "sample.ServerConfigBinder");
+        assertThat(Files.readString(folder.resolve("generated/sample/ApplicationConfigBinder.java")))
+            .doesNotContain("@SuppressWarnings", "nested(");
+
+        var config = Config.ofMap(Map.of(
+            "name", "app",
+            "profiles", List.of("a", "b"),
+            "server.host", "localhost",
+            "server.port.number", "8080",
+            "server.tags", List.of("x")
+        ));
+        try (var classLoader = new URLClassLoader(new URL[] { folder.resolve("classes").toUri().toURL() })) {
+            Object application = bind(classLoader, "sample.ApplicationConfigBinder", config);
+            Class<?> applicationClass = application.getClass();
+            assertThat(applicationClass.getField("name").get(application)).isEqualTo("app");
+            assertThat(applicationClass.getField("workers").get(application)).isEqualTo(4);
+            assertThat(applicationClass.getField("profiles").get(application)).isEqualTo(Set.of("a", "b"));
+            assertThat(applicationClass.getField("server").get(application))
+                .hasToString("Server[host=localhost, port=8080, tags=[x]]");
+
+            Object server = bind(classLoader, "sample.ServerConfigBinder", Config.ofMap(Map.of("host", "h")));
+            assertThat(server).hasToString("Server[host=h, port=0, tags=[]]");
+            Object noServer = bind(classLoader, "sample.ApplicationConfigBinder", Config.ofMap(Map.of()));
+            assertThat(applicationClass.getField("server").get(noServer)).isNull();
+        }
+    }
+
+
+    @Test
+    void optionalMembersAreBoundToTheirElementType() throws Exception {
+        var diagnostics = compile(Map.of("Opt", OPTIONAL));
+        assertThat(diagnostics).isEmpty();
+        try (var classLoader = new URLClassLoader(new URL[] { folder.resolve("classes").toUri().toURL() })) {
+            assertThat(bind(classLoader, "sample.OptConfigBinder", Config.ofMap(Map.of("port", "80", "host", "h"))))
+                .hasToString("Opt[port=Optional[80], host=h]");
+            assertThat(bind(classLoader, "sample.OptConfigBinder", Config.ofMap(Map.of())))
+                .hasToString("Opt[port=Optional.empty, host=null]");
+        }
+    }
+
+
+    @Test
+    void typesWithInaccessibleMembersAreSkipped() throws Exception {
+        var diagnostics = compile(Map.of("Skipped", SKIPPED));
+        assertThat(diagnostics)
+            .singleElement()
+            .satisfies(diagnostic -> {
+                assertThat(diagnostic.getKind()).isEqualTo(Diagnostic.Kind.WARNING);
+                assertThat(diagnostic.getMessage(null)).contains("no binder generated for sample.Skipped");
+            });
+        assertThat(folder.resolve("classes/META-INF/services/" + ConfigBinder.class.getName())).doesNotExist();
+    }
+
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(Map<String, String> sources)
+    throws IOException, URISyntaxException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        Path sourceFolder = Files.createDirectories(folder.resolve("src/sample"));
+        Files.createDirectories(folder.resolve("classes"));
+        Files.createDirectories(folder.resolve("generated"));
+        for (var source : sources.entrySet()) {
+            Files.writeString(sourceFolder.resolve(source.getKey() + ".java"), source.getValue());
+        }
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            var units = fileManager.getJavaFileObjectsFromPaths(
+                sources.keySet().stream().map(name -> sourceFolder.resolve(name + ".java")).toList()
+            );
+            var options = List.of(
+                "-Xlint:unchecked,rawtypes",
+                "-classpath", Path.of(Config.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString(),
+                "-d", folder.resolve("classes").toString(),
+                "-s", folder.resolve("generated").toString()
+            );
+            var task = compiler.getTask(null, fileManager, diagnostics, options, null, units);
+            task.setProcessors(List.of(new ConfigBinderProcessor()));
+            assertThat(task.call()).isTrue();
+        }
+        return diagnostics.getDiagnostics();
+    }
+
+
+    private static Object bind(ClassLoader classLoader, String binderName, Config config) throws ReflectiveOperationException {
+        var binder = (ConfigBinder<?>) classLoader.loadClass(binderName).getConstructor().newInstance();
+        return binder.bind(config);
+    }
+
+}
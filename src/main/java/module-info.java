@@ -13,7 +13,12 @@ open module org.myjtools.imconfig {
     exports org.myjtools.imconfig.types;
 
     requires org.apache.commons.configuration2;
+    requires com.fasterxml.jackson.core;
     requires com.fasterxml.jackson.dataformat.yaml;
     requires com.fasterxml.jackson.dataformat.xml;
+    requires org.yaml.snakeyaml;
+
+    uses org.myjtools.imconfig.ConfigBinder;
+    uses org.myjtools.imconfig.ValueConverter;
 
 }
\ No newline at end of file
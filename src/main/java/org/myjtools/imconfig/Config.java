@@ -5,10 +5,13 @@ package org.myjtools.imconfig;
 
 
 import org.myjtools.imconfig.internal.ConfigFactory;
+import org.myjtools.imconfig.types.DurationPropertyType;
+import org.myjtools.imconfig.types.SizePropertyType;
 
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -29,10 +32,10 @@ public interface Config {
     }
 
     /**
-     * Create a new configuration from the system properties
+     * Create a new configuration from the current system properties
      */
     static Config system() {
-        return ConfigFactory.SYSTEM;
+        return factory.system();
     }
 
 
@@ -63,7 +66,7 @@ public interface Config {
      * Create a new configuration from the file of the given path
      */
     static Config ofPath(Path path) {
-        return factory.ofURI(path.toUri());
+        return factory.ofPath(path);
     }
 
 
@@ -74,6 +77,36 @@ public interface Config {
         return factory.ofURI(uri);
     }
 
+    /**
+     * Create a new configuration from several files, parsed concurrently on virtual threads
+     * and merged in the given order, so properties of each source override the ones of
+     * the previous sources
+     * @throws ConfigException if any source cannot be read, indicating which one
+     */
+    static Config ofSources(List<URI> sources) {
+        return factory.ofSources(sources);
+    }
+
+
+    /**
+     * Create a new configuration from several files, parsed concurrently using the given
+     * executor and merged in the given order
+     * @throws ConfigException if any source cannot be read, indicating which one
+     */
+    static Config ofSources(List<URI> sources, Executor executor) {
+        return factory.ofSources(sources, executor);
+    }
+
+
+    /**
+     * Create a new configuration from a binary snapshot written by {@link #writeSnapshot(Path)}.
+     * The snapshot is loaded as is, without parsing, merging or validating properties.
+     * @throws ConfigException if the file is not a valid snapshot
+     */
+    static Config ofSnapshot(Path path) {
+        return factory.ofSnapshot(path);
+    }
+
     /**
      * Create a new configuration from a properties object
      */
@@ -114,6 +147,15 @@ public interface Config {
     }
 
 
+    /**
+     * Create a reusable handle for the given key. Reading properties through a handle
+     * avoids looking up the key again on every access.
+     */
+    static ConfigKey key(String name) {
+        return factory.key(name);
+    }
+
+
     /**
      * Creates a new configuration resulting of adding the given prefix to every
      * key
@@ -135,6 +177,17 @@ public interface Config {
     Config inner(String keyPrefix);
 
 
+    /**
+     * Creates a compact copy of this configuration. Configurations obtained by
+     * {@link #withPrefix(String)}, {@link #filtered(String)} or {@link #inner(String)}
+     * are views that keep a reference to the original one; materializing them allows
+     * the original configuration to be released.
+     */
+    default Config materialize() {
+        return this;
+    }
+
+
     /**
      * @return <code>true</code> if there is no properties in this configuration
      */
@@ -154,10 +207,23 @@ public interface Config {
     boolean notHasProperty(String key);
 
 
+    /** @return <code>true</code> if there is a valued property with the given key */
+    default boolean hasProperty(ConfigKey key) {
+        return hasProperty(key.name());
+    }
+
+
     /** @return A stream from all the keys of the configuration,
      *  even for those which have no value */
     Stream<String> keys();
 
+
+    /** @return A stream from all the pairs <code>[key,value]</code> of the configuration,
+     *  using an empty string for those which have no value */
+    default Stream<Map.Entry<String, String>> entries() {
+        return asMap().entrySet().stream();
+    }
+
     /**
      * @return A stream with the distinct first-level keys of the current configuration.
      * For example, keys {@code datasourceA.user} and {@code datasourceA.password}
@@ -180,6 +246,15 @@ public interface Config {
     <T> Optional<T> get(String key, Class<T> type);
 
 
+    /**
+     * @return An optional value of the specified type, empty if the key does not
+     *         exist
+     */
+    default <T> Optional<T> get(ConfigKey key, Class<T> type) {
+        return get(key.name(), type);
+    }
+
+
     /**
      * @return An optional value converted from a string, empty if the key does not exist
      */
@@ -213,21 +288,232 @@ public interface Config {
     Optional<String> getString(String key);
 
 
+    /**
+     * @return The integer value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default int getInt(String key, int defaultValue) {
+        var value = get(key, Integer.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The long value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default long getLong(String key, long defaultValue) {
+        var value = get(key, Long.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The double value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default double getDouble(String key, double defaultValue) {
+        var value = get(key, Double.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The boolean value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default boolean getBoolean(String key, boolean defaultValue) {
+        var value = get(key, Boolean.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return An optional string value, empty if the key does not exist
+     */
+    default Optional<String> getString(ConfigKey key) {
+        return get(key, String.class);
+    }
+
+
+    /**
+     * @return The integer value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default int getInt(ConfigKey key, int defaultValue) {
+        var value = get(key, Integer.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The long value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default long getLong(ConfigKey key, long defaultValue) {
+        var value = get(key, Long.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The double value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default double getDouble(ConfigKey key, double defaultValue) {
+        var value = get(key, Double.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return The boolean value of the property, or the given default value if the key
+     *         does not exist
+     */
+    default boolean getBoolean(ConfigKey key, boolean defaultValue) {
+        var value = get(key, Boolean.class);
+        return value.isPresent() ? value.get() : defaultValue;
+    }
+
+
+    /**
+     * @return An optional primitive integer value, empty if the key does not exist
+     */
+    default OptionalInt getOptionalInt(String key) {
+        var value = get(key, Integer.class);
+        return value.isPresent() ? OptionalInt.of(value.get()) : OptionalInt.empty();
+    }
+
+
+    /**
+     * @return An optional primitive long value, empty if the key does not exist
+     */
+    default OptionalLong getOptionalLong(String key) {
+        var value = get(key, Long.class);
+        return value.isPresent() ? OptionalLong.of(value.get()) : OptionalLong.empty();
+    }
+
+
+    /**
+     * @return An optional primitive double value, empty if the key does not exist
+     */
+    default OptionalDouble getOptionalDouble(String key) {
+        var value = get(key, Double.class);
+        return value.isPresent() ? OptionalDouble.of(value.get()) : OptionalDouble.empty();
+    }
+
+
+    /**
+     * @return The value of a <code>duration</code> property expressed in nanoseconds, or the
+     *         given default value if the key does not exist
+     * @throws ConfigException if the value is not a valid duration
+     * @see DurationPropertyType#toNanos(String)
+     */
+    default long getDurationNanos(String key, long defaultValue) {
+        var value = getString(key);
+        return value.isPresent() ? parseDuration(key, value.get()) : defaultValue;
+    }
+
+
+    /**
+     * @return The value of a <code>duration</code> property expressed in nanoseconds, or the
+     *         given default value if the key does not exist
+     * @throws ConfigException if the value is not a valid duration
+     */
+    default long getDurationNanos(ConfigKey key, long defaultValue) {
+        var value = getString(key);
+        return value.isPresent() ? parseDuration(key.name(), value.get()) : defaultValue;
+    }
+
+
+    /**
+     * @return The value of a <code>size</code> property expressed in bytes, or the given
+     *         default value if the key does not exist
+     * @throws ConfigException if the value is not a valid size
+     * @see SizePropertyType#toBytes(String)
+     */
+    default long getSizeBytes(String key, long defaultValue) {
+        var value = getString(key);
+        return value.isPresent() ? parseSize(key, value.get()) : defaultValue;
+    }
+
+
+    /**
+     * @return The value of a <code>size</code> property expressed in bytes, or the given
+     *         default value if the key does not exist
+     * @throws ConfigException if the value is not a valid size
+     */
+    default long getSizeBytes(ConfigKey key, long defaultValue) {
+        var value = getString(key);
+        return value.isPresent() ? parseSize(key.name(), value.get()) : defaultValue;
+    }
+
+
+    private static long parseDuration(String key, String value) {
+        try {
+            return DurationPropertyType.toNanos(value);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new ConfigException("Invalid duration for property "+key+": "+value, e);
+        }
+    }
+
+
+    private static long parseSize(String key, String value) {
+        try {
+            return SizePropertyType.toBytes(value);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new ConfigException("Invalid size for property "+key+": "+value, e);
+        }
+    }
+
+
+    /**
+     * Read all the keys of the given reader at once, converting each value to its type
+     * @throws ConfigException if any value cannot be converted
+     */
+    default ConfigValues read(ConfigReader reader) {
+        Object[] values = new Object[reader.size()];
+        for (int position = 0; position < values.length; position++) {
+            values[position] = get(reader.key(position), reader.type(position)).orElse(null);
+        }
+        return new ConfigValues(reader, values);
+    }
+
+
+    /**
+     * Read the string values of the given keys at once
+     */
+    default ConfigValues read(ConfigKey... keys) {
+        return read(ConfigReader.of(keys));
+    }
+
+
     /**
      * Instantiate a new object with its fields filled according the configuration.
      */
     <T> T getObject(Class<T> configClass);
 
+
     /**
-     * @return A list with values of the specified type, empty if the key does
-     *         not exist
+     * Create an implementation of the given interface whose methods return the value of
+     * the property with the same name (or the key given by {@link ConfigProperty}). Values
+     * are converted when the implementation is created, so invoking the methods does
+     * not involve any lookup.
+     * @throws ConfigException if the type is not an interface or has methods that
+     * cannot be bound to a property
+     */
+    <T> T as(Class<T> type);
+
+    /**
+     * @return An unmodifiable list with values of the specified type, empty if the key
+     *         does not exist
      */
     <T> List<T> getList(String key, Class<T> type);
 
 
     /**
-     * @return A set with values of the specified type, empty if the key does not
-     *         exist
+     * @return An unmodifiable set with values of the specified type, in the same order as
+     *         the list, empty if the key does not exist
      */
     <T> Set<T> getSet(String key, Class<T> type);
 
@@ -239,11 +525,46 @@ public interface Config {
     <T> Stream<T> getStream(String key, Class<T> type);
 
 
-    /** @return The configuration represented as a {@link Properties} object */
+    /**
+     * @return An unmodifiable map with the values of the properties below the given key,
+     *         converted to the specified type and indexed by the rest of their keys. For
+     *         example, the properties {@code limits.read} and {@code limits.write} are
+     *         returned as the entries {@code read} and {@code write} of the map
+     *         {@code limits}. Properties without value are ignored.
+     */
+    default <T> Map<String, T> getMap(String key, Class<T> type) {
+        Config inner = inner(key);
+        Map<String, T> map = new LinkedHashMap<>();
+        inner.keys()
+            .filter(innerKey -> !innerKey.isEmpty())
+            .forEach(innerKey -> inner.get(innerKey, type).ifPresent(value -> map.put(innerKey, value)));
+        return Collections.unmodifiableMap(map);
+    }
+
+
+    /**
+     * @return An immutable array with the integer values of the property, empty if the key
+     *         does not exist
+     */
+    default IntArray getIntArray(String key) {
+        return IntArray.of(getList(key, Integer.class).stream().mapToInt(Integer::intValue));
+    }
+
+
+    /**
+     * @return An immutable array with the long values of the property, empty if the key
+     *         does not exist
+     */
+    default LongArray getLongArray(String key) {
+        return LongArray.of(getList(key, Long.class).stream().mapToLong(Long::longValue));
+    }
+
+
+    /** @return The configuration represented as a new {@link Properties} object */
     Properties asProperties();
 
 
-    /** @return The configuration represented as a {@link Map} object */
+    /** @return The configuration represented as an unmodifiable {@link Map} object */
     Map<String, String> asMap();
 
 
@@ -326,4 +647,15 @@ public interface Config {
      * Get a textual representation of all defined properties
      */
     String getDefinitionsToString();
+
+
+    /**
+     * Validate this configuration and write it, along with its definitions, to a binary
+     * snapshot that can be loaded with {@link #ofSnapshot(Path)}
+     * @throws ConfigException if the configuration is not valid, any definition has a
+     * custom property type, or the file cannot be written
+     */
+    default void writeSnapshot(Path path) {
+        factory.writeSnapshot(this, path);
+    }
 }
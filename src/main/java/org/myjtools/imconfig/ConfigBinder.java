@@ -0,0 +1,23 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+
+/**
+ * Service that creates instances of a given {@link ConfigClass} type from a configuration.
+ * <p>
+ * Implementations are usually generated at compile time by the <code>imconfig-processor</code>
+ * annotation processor and registered as services, so that {@link Config#getObject(Class)}
+ * can bind the type without using reflection. Types without a registered binder are bound
+ * reflectively.
+ */
+public interface ConfigBinder<T> {
+
+    /** @return The type of the objects created by this binder */
+    Class<T> type();
+
+    /** @return A new instance of the type filled with the values of the configuration */
+    T bind(Config config);
+
+}
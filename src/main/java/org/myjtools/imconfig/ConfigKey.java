@@ -0,0 +1,16 @@
+package org.myjtools.imconfig;
+
+/**
+ * A reusable handle to a property key, obtained with {@link Config#key(String)}.
+ * <p>
+ * Handles remember where the key was found the last time they were used, so repeated reads
+ * of the same key on the same configuration skip the key lookup. They are valid for any
+ * configuration, including derived ones; when the layout of the configuration differs, the
+ * key is simply looked up again.
+ */
+public interface ConfigKey {
+
+    /** @return The property key */
+    String name();
+
+}
@@ -11,10 +11,11 @@ import java.lang.annotation.Target;
 
 
 /**
- * Pair of [key,value] used in {@link AnnotatedConfig#value()}
+ * Key of the property bound to a field, record component or constructor parameter
+ * of a {@link ConfigClass} type, or to a method of an interface (see {@link Config#as(Class)})
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target({ ElementType.FIELD })
+@Target({ ElementType.FIELD, ElementType.PARAMETER, ElementType.RECORD_COMPONENT, ElementType.METHOD })
 public @interface ConfigProperty {
 
     /** The key of the property */
@@ -0,0 +1,130 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+
+import java.util.*;
+
+
+/**
+ * A reusable set of keys and types that are read together from a configuration using
+ * {@link Config#read(ConfigReader)}.
+ * <p>
+ * Readers are immutable and usually created once, as constants, so reading a whole
+ * group of properties only involves resolving each key and converting its value:
+ * <pre>{@code
+ * static final ConfigReader SERVER = ConfigReader.builder()
+ *     .add(PORT, Integer.class)
+ *     .add(HOST, String.class)
+ *     .build();
+ * ...
+ * ConfigValues values = config.read(SERVER);
+ * int port = values.getInt(PORT, 8080);
+ * }</pre>
+ */
+public final class ConfigReader {
+
+    /**
+     * Get a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    /**
+     * Create a new reader of the string values of the given keys
+     */
+    public static ConfigReader of(ConfigKey... keys) {
+        var builder = builder();
+        for (ConfigKey key : keys) {
+            builder.add(key, String.class);
+        }
+        return builder.build();
+    }
+
+
+    private final ConfigKey[] keys;
+    private final Class<?>[] types;
+    private final Map<String, Integer> positions;
+
+
+    private ConfigReader(List<ConfigKey> keys, List<Class<?>> types) {
+        this.keys = keys.toArray(ConfigKey[]::new);
+        this.types = types.toArray(Class<?>[]::new);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int position = 0; position < this.keys.length; position++) {
+            if (positions.putIfAbsent(this.keys[position].name(), position) != null) {
+                throw new ConfigException("Key "+this.keys[position].name()+" is read more than once");
+            }
+        }
+        this.positions = positions;
+    }
+
+
+    /** @return The number of keys read */
+    public int size() {
+        return keys.length;
+    }
+
+
+    /** @return The key at the given position */
+    public ConfigKey key(int position) {
+        return keys[position];
+    }
+
+
+    /** @return The type the value at the given position is converted to */
+    public Class<?> type(int position) {
+        return types[position];
+    }
+
+
+    /** @return The position of the given key, or <code>-1</code> if it is not read */
+    public int indexOf(ConfigKey key) {
+        Integer position = positions.get(key.name());
+        return position == null ? -1 : position;
+    }
+
+
+    /**
+     * @return The values of the keys read from the given configuration
+     * @see Config#read(ConfigReader)
+     */
+    public ConfigValues read(Config config) {
+        return config.read(this);
+    }
+
+
+
+    /**
+     * Fluent builder of {@link ConfigReader} objects
+     */
+    public static final class Builder {
+
+        private final List<ConfigKey> keys = new ArrayList<>();
+        private final List<Class<?>> types = new ArrayList<>();
+
+        private Builder() { }
+
+
+        public Builder add(ConfigKey key, Class<?> type) {
+            keys.add(Objects.requireNonNull(key));
+            types.add(Objects.requireNonNull(type));
+            return this;
+        }
+
+
+        public Builder add(String key, Class<?> type) {
+            return add(Config.key(key), type);
+        }
+
+
+        public ConfigReader build() {
+            return new ConfigReader(keys, types);
+        }
+
+    }
+
+}
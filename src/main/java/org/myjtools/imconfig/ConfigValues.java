@@ -0,0 +1,169 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+
+
+/**
+ * The values of the keys of a {@link ConfigReader}, already converted to their types.
+ * Keys that are not present in the configuration have no value.
+ */
+public final class ConfigValues {
+
+    private final ConfigReader reader;
+    private final Object[] values;
+
+
+    /**
+     * @param reader The reader whose keys have been read
+     * @param values The converted value of each key of the reader, in the same order,
+     *               or <code>null</code> for absent keys. The array is not copied.
+     */
+    public ConfigValues(ConfigReader reader, Object[] values) {
+        if (values.length != reader.size()) {
+            throw new IllegalArgumentException("Expected "+reader.size()+" values but got "+values.length);
+        }
+        this.reader = reader;
+        this.values = values;
+    }
+
+
+    /** @return The reader whose keys have been read */
+    public ConfigReader reader() {
+        return reader;
+    }
+
+
+    /** @return <code>true</code> if the given key has a value */
+    public boolean hasValue(ConfigKey key) {
+        int position = reader.indexOf(key);
+        return position >= 0 && values[position] != null;
+    }
+
+
+    /**
+     * @return The value of the given key, empty if it has no value
+     * @throws ConfigException if the key is not read or was read as a different type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> get(ConfigKey key, Class<T> type) {
+        int position = position(key);
+        if (reader.type(position) != type) {
+            throw new ConfigException(
+                "Key "+key.name()+" was read as "+reader.type(position).getName()+", not as "+type.getName()
+            );
+        }
+        // values of primitive types are stored boxed
+        Class<T> boxedType = (Class<T>) MethodType.methodType(type).wrap().returnType();
+        return Optional.ofNullable(boxedType.cast(values[position]));
+    }
+
+
+    /** @return The value of the given key, empty if it has no value */
+    public Optional<String> getString(ConfigKey key) {
+        return Optional.ofNullable(values[position(key)]).map(Object::toString);
+    }
+
+
+    /**
+     * @return The value of the given key, or the given default value if it has no value
+     * @throws ConfigException if the key is not read or was not read as an integer type
+     * that fits in an <code>int</code>
+     */
+    public int getInt(ConfigKey key, int defaultValue) {
+        Number value = number(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value.intValue();
+        }
+        throw mismatch(key, value, "an int");
+    }
+
+
+    /**
+     * @return The value of the given key, or the given default value if it has no value
+     * @throws ConfigException if the key is not read or was not read as an integer type
+     * that fits in a <code>long</code>
+     */
+    public long getLong(ConfigKey key, long defaultValue) {
+        Number value = number(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value.longValue();
+        }
+        throw mismatch(key, value, "a long");
+    }
+
+
+    /**
+     * @return The value of the given key, or the given default value if it has no value
+     * @throws ConfigException if the key is not read or was not read as a number
+     */
+    public double getDouble(ConfigKey key, double defaultValue) {
+        Number value = number(key);
+        return value == null ? defaultValue : value.doubleValue();
+    }
+
+
+    /**
+     * @return The value of the given key, or the given default value if it has no value
+     * @throws ConfigException if the key is not read or was not read as a boolean
+     */
+    public boolean getBoolean(ConfigKey key, boolean defaultValue) {
+        Object value = values[position(key)];
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        throw new ConfigException("Key "+key.name()+" was not read as a boolean");
+    }
+
+
+    private Number number(ConfigKey key) {
+        Object value = values[position(key)];
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        }
+        throw new ConfigException("Key "+key.name()+" was not read as a number");
+    }
+
+
+    private static ConfigException mismatch(ConfigKey key, Object value, String expected) {
+        return new ConfigException(
+            "Key "+key.name()+" was read as "+value.getClass().getName()+", not as "+expected
+        );
+    }
+
+
+    private int position(ConfigKey key) {
+        int position = reader.indexOf(key);
+        if (position < 0) {
+            throw new ConfigException("Key "+key.name()+" is not read by this reader");
+        }
+        return position;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("{");
+        for (int position = 0; position < values.length; position++) {
+            if (position > 0) {
+                string.append(", ");
+            }
+            string.append(reader.key(position).name()).append('=').append(values[position]);
+        }
+        return string.append('}').toString();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+
+/**
+ * Immutable sequence of primitive <code>int</code> values, as returned by
+ * {@link Config#getIntArray(String)}. Instances can be freely shared, since their values
+ * cannot be modified.
+ */
+public final class IntArray {
+
+    private static final IntArray EMPTY = new IntArray(new int[0]);
+
+    private final int[] values;
+
+
+    /** @return A new sequence with a copy of the given values */
+    public static IntArray of(int... values) {
+        return values.length == 0 ? EMPTY : new IntArray(values.clone());
+    }
+
+
+    /** @return A new sequence with the values of the given stream */
+    public static IntArray of(IntStream values) {
+        int[] array = values.toArray();
+        return array.length == 0 ? EMPTY : new IntArray(array);
+    }
+
+
+    private IntArray(int[] values) {
+        this.values = values;
+    }
+
+
+    /** @return The number of values */
+    public int size() {
+        return values.length;
+    }
+
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+
+    /**
+     * @return The value at the given position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+
+    public IntStream stream() {
+        return Arrays.stream(values);
+    }
+
+
+    /** @return A new array with a copy of the values */
+    public int[] toArray() {
+        return values.clone();
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof IntArray array && Arrays.equals(values, array.values);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+}
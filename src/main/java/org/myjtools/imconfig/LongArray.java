@@ -0,0 +1,88 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+
+/**
+ * Immutable sequence of primitive <code>long</code> values, as returned by
+ * {@link Config#getLongArray(String)}. Instances can be freely shared, since their values
+ * cannot be modified.
+ */
+public final class LongArray {
+
+    private static final LongArray EMPTY = new LongArray(new long[0]);
+
+    private final long[] values;
+
+
+    /** @return A new sequence with a copy of the given values */
+    public static LongArray of(long... values) {
+        return values.length == 0 ? EMPTY : new LongArray(values.clone());
+    }
+
+
+    /** @return A new sequence with the values of the given stream */
+    public static LongArray of(LongStream values) {
+        long[] array = values.toArray();
+        return array.length == 0 ? EMPTY : new LongArray(array);
+    }
+
+
+    private LongArray(long[] values) {
+        this.values = values;
+    }
+
+
+    /** @return The number of values */
+    public int size() {
+        return values.length;
+    }
+
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+
+    /**
+     * @return The value at the given position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public long get(int index) {
+        return values[index];
+    }
+
+
+    public LongStream stream() {
+        return Arrays.stream(values);
+    }
+
+
+    /** @return A new array with a copy of the values */
+    public long[] toArray() {
+        return values.clone();
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LongArray array && Arrays.equals(values, array.values);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+
+}
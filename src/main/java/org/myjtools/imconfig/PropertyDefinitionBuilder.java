@@ -2,6 +2,7 @@ package org.myjtools.imconfig;
 
 import org.myjtools.imconfig.types.*;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,6 +102,24 @@ public class PropertyDefinitionBuilder {
         return this;
     }
 
+    public PropertyDefinitionBuilder durationType(Duration min, Duration max) {
+        this.propertyType = new DurationPropertyType(min, max);
+        return this;
+    }
+
+    public PropertyDefinitionBuilder durationType() {
+        return durationType(null,null);
+    }
+
+    public PropertyDefinitionBuilder sizeType(Number minBytes, Number maxBytes) {
+        this.propertyType = new SizePropertyType(minBytes, maxBytes);
+        return this;
+    }
+
+    public PropertyDefinitionBuilder sizeType() {
+        return sizeType(null,null);
+    }
+
     public PropertyDefinitionBuilder mapType(Map<String, PropertyDefinition> entries) {
         this.propertyType = new MapPropertyType(new LinkedHashMap<>(entries));
         return this;
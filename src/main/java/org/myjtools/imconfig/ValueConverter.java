@@ -0,0 +1,46 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig;
+
+
+import java.util.function.Function;
+
+
+/**
+ * Converter of raw property values to a specific type.
+ * <p>
+ * Converters can be registered for a single factory using
+ * {@link org.myjtools.imconfig.internal.ConfigFactory#converter(ValueConverter)}, or globally
+ * as services of this interface. Converted values are cached by the configurations, so
+ * implementations must be pure functions of the raw value.
+ */
+public interface ValueConverter<T> {
+
+    /** @return The type produced by this converter */
+    Class<T> type();
+
+    /**
+     * @return The raw value converted to the type of this converter
+     * @throws RuntimeException if the value cannot be converted
+     */
+    T convert(String value);
+
+
+    /**
+     * Create a new converter from a conversion function
+     */
+    static <T> ValueConverter<T> of(Class<T> type, Function<String, ? extends T> function) {
+        return new ValueConverter<>() {
+            @Override
+            public Class<T> type() {
+                return type;
+            }
+            @Override
+            public T convert(String value) {
+                return function.apply(value);
+            }
+        };
+    }
+
+}
@@ -5,6 +5,7 @@ package org.myjtools.imconfig.internal;
 
 
 import org.myjtools.imconfig.*;
+import org.myjtools.imconfig.types.MapPropertyType;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -72,15 +73,40 @@ public abstract class AbstractConfiguration implements Config {
         var missingValues = definitions.values().stream()
             .filter(PropertyDefinition::required)
             .filter(it->!this.hasProperty(it.property()))
+            .filter(it->!(it.propertyType() instanceof MapPropertyType) || inner(it.property()).isEmpty())
             .map(it->Map.entry(
                 it.property(),
                 it.validate(null).map(List::of).orElseGet(List::of)
             ));
-        return Stream.concat(invalidValues,missingValues)
+        var invalidEntries = definitions.values().stream()
+            .filter(it->it.propertyType() instanceof MapPropertyType)
+            .flatMap(this::mapEntryValidations)
+            .filter(entry -> !entry.getValue().isEmpty());
+        return Stream.of(invalidValues,missingValues,invalidEntries)
+            .flatMap(it->it)
             .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
 
+    /*
+     * Every element of a map property is validated against the entry definitions,
+     * reporting each invalid entry under its full key
+     */
+    private Stream<Map.Entry<String,List<String>>> mapEntryValidations(PropertyDefinition definition) {
+        var entries = ((MapPropertyType) definition.propertyType()).entries();
+        return inner(definition.property()).innerKeys()
+            .filter(element -> !element.isEmpty())
+            .flatMap(element -> entries.entrySet().stream().map(entry -> {
+                String key = definition.property() + "." + element + "." + entry.getKey();
+                List<String> validations = validations(key, entry.getValue());
+                if (validations.isEmpty() && get(key, String.class).isEmpty()) {
+                    validations = entry.getValue().validate(null).map(List::of).orElseGet(List::of);
+                }
+                return Map.entry(key, validations);
+            }));
+    }
+
+
     @Override
     public Config validate() {
         var validations = validations();
@@ -0,0 +1,84 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+
+
+/**
+ * Reader that decodes the content of a byte buffer (usually a mapped file) directly into
+ * the buffer of the caller, without any intermediate copy. Malformed input is replaced,
+ * like in {@link java.io.InputStreamReader}.
+ */
+public final class ByteBufferReader extends Reader {
+
+    private static final int NONE = -1;
+
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean flushed;
+    private int pending = NONE;
+
+
+    public ByteBufferReader(ByteBuffer bytes, Charset charset) {
+        this.bytes = bytes;
+        this.decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (pending != NONE) {
+            buffer[offset] = (char) pending;
+            pending = NONE;
+            return 1;
+        }
+        int read = decode(CharBuffer.wrap(buffer, offset, length));
+        if (read == 0 && !flushed) {
+            // a surrogate pair does not fit in a single char, so it is decoded apart
+            CharBuffer pair = CharBuffer.allocate(2);
+            read = decode(pair);
+            if (read > 0) {
+                buffer[offset] = pair.get(0);
+                pending = read > 1 ? pair.get(1) : NONE;
+                return 1;
+            }
+        }
+        return read == 0 && flushed ? -1 : read;
+    }
+
+
+    private int decode(CharBuffer chars) throws IOException {
+        if (flushed) {
+            return 0;
+        }
+        int start = chars.position();
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (result.isUnderflow() && !bytes.hasRemaining()) {
+            result = decoder.flush(chars);
+            flushed = result.isUnderflow();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        return chars.position() - start;
+    }
+
+
+    @Override
+    public void close() {
+        // the buffer is released when it is no longer referenced
+    }
+
+}
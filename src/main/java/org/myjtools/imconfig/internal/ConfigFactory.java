@@ -11,14 +11,28 @@ import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.configuration2.io.FileHandler;
 import org.myjtools.imconfig.*;
+import org.myjtools.imconfig.types.MapPropertyType;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
@@ -27,11 +41,18 @@ public class ConfigFactory {
     private final ConversionHandler conversionHandler = new ApacheConfiguration2ConversionHandler();
     private final PropertyDefinitionParser parser = new PropertyDefinitionParser();
 
-    public static final ApacheConfiguration2 EMPTY = new ApacheConfiguration2(new BaseConfiguration());
-    public static final ApacheConfiguration2 ENVIRONMENT = new ApacheConfiguration2( new EnvironmentConfiguration());
-    public static final ApacheConfiguration2 SYSTEM = new ApacheConfiguration2( new SystemConfiguration());
+    public static final ImmutableConfiguration EMPTY = new ImmutableConfiguration(FlatPropertyStore.EMPTY);
+    public static final ImmutableConfiguration ENVIRONMENT = new ImmutableConfiguration(store(new EnvironmentConfiguration()));
+
+    /*
+     * Mapping a file only pays off when it is not tiny
+     */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
 
     private char separator = 0;
+    private int maxOverlayDepth = 16;
+    private int maxOverlayLookups = 10_000;
+    private ValueConverters converters = ValueConverters.DEFAULT;
 
 
     public ConfigFactory multivalueSeparator(char separator) {
@@ -53,28 +74,183 @@ public class ConfigFactory {
     }
 
 
-    public Config merge(Config base, Config delta) {
+    /**
+     * Set the number of appended configurations above which an appended configuration
+     * merges all its layers into a single one
+     */
+    public ConfigFactory maxOverlayDepth(int maxOverlayDepth) {
+        if (maxOverlayDepth < 1) {
+            throw new IllegalArgumentException("Invalid overlay depth: "+maxOverlayDepth);
+        }
+        this.maxOverlayDepth = maxOverlayDepth;
+        return this;
+    }
+
 
-        AbstractConfiguration result = new BaseConfiguration();
+    /**
+     * Set the number of lookups above which an appended configuration merges all its
+     * layers into a single one
+     */
+    public ConfigFactory maxOverlayLookups(int maxOverlayLookups) {
+        if (maxOverlayLookups < 0) {
+            throw new IllegalArgumentException("Invalid overlay lookups: "+maxOverlayLookups);
+        }
+        this.maxOverlayLookups = maxOverlayLookups;
+        return this;
+    }
 
-        base.keys().filter(delta::notHasProperty).forEach(
-        property -> base.getList(property,String.class).forEach(value -> result.addProperty(property,value))
-        );
 
-        delta.keys().forEach(property -> {
-            var existing = base.getList(property,String.class);
-            var added = delta.getList(property,String.class);
-            if (existing.isEmpty() && added.isEmpty()) {
-                result.setProperty(property,"");
-            } else if (!added.isEmpty()) {
-                added.forEach(value -> result.addProperty(property,value));
-            }
-        });
+    /**
+     * Register a converter used by the configurations created by this factory, overriding
+     * any other converter for the same type
+     */
+    public ConfigFactory converter(ValueConverter<?> converter) {
+        this.converters = converters.with(Objects.requireNonNull(converter));
+        return this;
+    }
+
+
+    /**
+     * Create a new configuration from the current system properties
+     */
+    public Config system() {
+        return new ImmutableConfiguration(Map.of(), store(new SystemConfiguration()), converters);
+    }
+
+
+    public ConfigKey key(String name) {
+        return new KeyHandle(Objects.requireNonNull(name));
+    }
+
+
+    /**
+     * Merge two configurations. Properties of the delta configuration override the ones
+     * of the base configuration, except when the delta property has no value.
+     * <p>
+     * The result is a lazy overlay of both configurations, so no property is copied until
+     * the overlay gets too deep or is looked up too many times.
+     * @see OverlayPropertyStore
+     */
+    public Config merge(Config base, Config delta) {
+
+        PropertyStore baseStore = store(base);
+        PropertyStore deltaStore = store(delta);
 
         Map<String, PropertyDefinition> definitions = new HashMap<>(base.getDefinitions());
         definitions.putAll(delta.getDefinitions());
 
-        return new ApacheConfiguration2(definitions, result);
+        // only used for lookups, so it must never be flattened
+        PropertyStore merged = OverlayPropertyStore.of(baseStore, deltaStore, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        var interpolated = interpolated(baseStore, deltaStore, merged);
+        var mapDefaults = mapDefaults(baseStore, deltaStore, merged, definitions);
+        if (!interpolated.isEmpty() || !mapDefaults.isEmpty()) {
+            deltaStore = withOverrides(deltaStore, interpolated, mapDefaults);
+        }
+        PropertyStore result = OverlayPropertyStore.of(baseStore, deltaStore, maxOverlayDepth, maxOverlayLookups);
+
+        // the merged configuration keeps converting values like the base one
+        ValueConverters baseConverters = base instanceof ImmutableConfiguration immutableConfiguration ?
+            immutableConfiguration.converters() :
+            converters;
+        return new ImmutableConfiguration(definitions, result, baseConverters);
+    }
+
+
+    /*
+     * Variables that could not be resolved within their own configuration are resolved
+     * again using the merged properties, so a configuration can refer to the properties
+     * of the one it is appended to.
+     */
+    private static FlatPropertyStore interpolated(PropertyStore base, PropertyStore delta, PropertyStore merged) {
+        Set<String> keys = new LinkedHashSet<>();
+        collectKeys(base, SortedPropertyStore::unresolvedKeys, keys);
+        collectKeys(delta, SortedPropertyStore::unresolvedKeys, keys);
+        return keys.isEmpty() ? FlatPropertyStore.EMPTY : Interpolation.interpolated(keys, merged);
+    }
+
+
+    /*
+     * The default values of the entries of map properties are added for every element of
+     * the map that does not define them. Since the elements are only known once values
+     * and definitions are merged, this is done here, so reading them has no extra cost.
+     */
+    private static FlatPropertyStore mapDefaults(
+        PropertyStore base,
+        PropertyStore delta,
+        PropertyStore merged,
+        Map<String, PropertyDefinition> definitions
+    ) {
+        var defaults = FlatPropertyStore.builder();
+        for (PropertyDefinition definition : definitions.values()) {
+            if (!(definition.propertyType() instanceof MapPropertyType mapType) ||
+                mapType.entries().values().stream().noneMatch(entry -> entry.defaultValue().isPresent())
+            ) {
+                continue;
+            }
+            Function<SortedPropertyStore, Collection<String>> elementsOf = store ->
+                InnerPropertyStore.of(store, definition.property()).index().root().childNames();
+            Set<String> elements = new LinkedHashSet<>();
+            collectKeys(base, elementsOf, elements);
+            collectKeys(delta, elementsOf, elements);
+            for (String element : elements) {
+                for (var entry : mapType.entries().entrySet()) {
+                    String key = definition.property() + "." + element + "." + entry.getKey();
+                    String[] values = merged.lookup(key, key.hashCode());
+                    if (values == null || values.length == 0) {
+                        entry.getValue().defaultValue().ifPresent(value -> defaults.add(key, value));
+                    }
+                }
+            }
+        }
+        return defaults.build();
+    }
+
+
+    /*
+     * Keys are collected from every layer of the overlays that are not flattened yet, so
+     * they are never flattened just to merge them
+     */
+    private static void collectKeys(
+        PropertyStore store,
+        Function<SortedPropertyStore, Collection<String>> keys,
+        Set<String> result
+    ) {
+        if (store instanceof OverlayPropertyStore overlay && !overlay.isFlattened()) {
+            for (PropertyStore layer : overlay.layers()) {
+                collectKeys(layer, keys, result);
+            }
+        } else {
+            result.addAll(keys.apply(store.sorted()));
+        }
+    }
+
+
+    /*
+     * Overrides are either resolved values or defaults for keys without value, so they
+     * can be placed in the delta layer instead of adding another layer to the overlay
+     */
+    private static FlatPropertyStore withOverrides(PropertyStore delta, FlatPropertyStore... overrides) {
+        var sorted = delta.sorted();
+        var store = FlatPropertyStore.builder();
+        for (int position = 0; position < sorted.size(); position++) {
+            store.addAll(sorted.key(position), Arrays.asList(sorted.values(position)));
+        }
+        for (FlatPropertyStore override : overrides) {
+            for (int position = 0; position < override.size(); position++) {
+                store.set(override.key(position), Arrays.asList(override.values(position)));
+            }
+        }
+        return store.build();
+    }
+
+
+    private static PropertyStore store(Config config) {
+        if (config instanceof ImmutableConfiguration immutableConfiguration) {
+            return immutableConfiguration.store();
+        }
+        var store = FlatPropertyStore.builder();
+        config.keys().forEach(key -> store.addAll(key, config.getList(key, String.class)));
+        return store.build();
     }
 
 
@@ -100,7 +276,7 @@ public class ConfigFactory {
                 configuration.addProperty(property.key(), value);
             }
         }
-        return new ApacheConfiguration2(configuration);
+        return new ImmutableConfiguration(Map.of(), store(configuration), converters);
 
     }
 
@@ -111,7 +287,7 @@ public class ConfigFactory {
         for (final Entry<Object, Object> property : properties.entrySet()) {
             configuration.addProperty(property.getKey().toString(), property.getValue());
         }
-        return new ApacheConfiguration2(configuration);
+        return new ImmutableConfiguration(Map.of(), store(configuration), converters);
     }
 
 
@@ -120,7 +296,7 @@ public class ConfigFactory {
         for (final Entry<String, ?> property : properties.entrySet()) {
             configuration.addProperty(property.getKey(), property.getValue());
         }
-        return new ApacheConfiguration2(configuration);
+        return new ImmutableConfiguration(Map.of(), store(configuration), converters);
     }
 
 
@@ -134,6 +310,145 @@ public class ConfigFactory {
     }
 
 
+    /**
+     * Create a new configuration from the file of the given path. Files of the default
+     * file system are read through a channel instead of a URL connection, and large files
+     * are mapped in memory so the parser decodes the mapped bytes directly.
+     */
+    public Config ofPath(Path path) {
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            return ofURI(path.toUri());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Reader reader = size < MAPPING_THRESHOLD || size > Integer.MAX_VALUE ?
+                new InputStreamReader(Channels.newInputStream(channel)) :
+                new ByteBufferReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), Charset.defaultCharset());
+            return buildFromInputStream(path.toString(), reader);
+        } catch (ConfigurationException | IOException e) {
+            throw new ConfigException(e);
+        }
+    }
+
+
+    /**
+     * Create a new configuration from several sources, parsed concurrently on virtual
+     * threads
+     * @see #ofSources(List, Executor)
+     */
+    public Config ofSources(List<URI> sources) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return ofSources(sources, executor);
+        }
+    }
+
+
+    /**
+     * Create a new configuration from several sources, parsed concurrently using the given
+     * executor. Sources are merged in the given order, as if each one were appended to the
+     * previous ones.
+     * @throws ConfigException if any source cannot be read. The exception refers to the
+     * first failed source, and the failures of further sources are added as suppressed.
+     */
+    public Config ofSources(List<URI> sources, Executor executor) {
+        List<CompletableFuture<Config>> futures = new ArrayList<>(sources.size());
+        for (URI source : sources) {
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> ofSource(source), executor));
+            } catch (RejectedExecutionException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<Config> configs = new ArrayList<>(sources.size());
+        ConfigException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                configs.add(futures.get(i).join());
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                var error = new ConfigException(
+                    "Cannot read configuration source "+sources.get(i)+": "+cause.getMessage(),
+                    cause
+                );
+                if (failure == null) {
+                    failure = error;
+                } else {
+                    failure.addSuppressed(error);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return mergeAll(configs);
+    }
+
+
+    private Config ofSource(URI source) {
+        return "file".equals(source.getScheme()) ? ofPath(Path.of(source)) : ofURI(source);
+    }
+
+
+    /*
+     * Same result as appending every configuration to the previous ones, but copying
+     * the properties only once instead of stacking an overlay per source. As in
+     * PropertyTrie.merge, a key without value removes the values of previous sources.
+     */
+    private Config mergeAll(List<Config> configs) {
+        if (configs.isEmpty()) {
+            return new ImmutableConfiguration(Map.of(), FlatPropertyStore.EMPTY, converters);
+        }
+        if (configs.size() == 1) {
+            return configs.get(0);
+        }
+        var merged = FlatPropertyStore.builder();
+        for (Config config : configs) {
+            SortedPropertyStore store = store(config).sorted();
+            for (int position = 0; position < store.size(); position++) {
+                String key = store.key(position);
+                String[] values = store.values(position);
+                if (values.length > 0) {
+                    merged.set(key, Arrays.asList(values));
+                } else {
+                    List<String> existing = merged.values(key);
+                    if (existing == null) {
+                        merged.set(key, List.of());
+                    } else if (!existing.isEmpty()) {
+                        merged.remove(key);
+                    }
+                }
+            }
+        }
+        FlatPropertyStore store = merged.build();
+        var interpolated = Interpolation.interpolated(store.unresolvedKeys(), store);
+        if (!interpolated.isEmpty()) {
+            store = withOverrides(store, interpolated);
+        }
+        return new ImmutableConfiguration(Map.of(), store, converters);
+    }
+
+
+    /**
+     * Write a binary snapshot of the given configuration, once validated
+     * @throws ConfigException if the configuration is not valid or cannot be written
+     * @see ConfigSnapshot
+     */
+    public void writeSnapshot(Config config, Path path) {
+        config.validate();
+        ConfigSnapshot.write(store(config).sorted(), config.getDefinitions(), path);
+    }
+
+
+    /**
+     * Create a new configuration from a binary snapshot. The configuration is neither
+     * parsed nor validated again.
+     * @throws ConfigException if the file is not a valid snapshot
+     */
+    public Config ofSnapshot(Path path) {
+        return ConfigSnapshot.read(path, converters);
+    }
+
+
     public Config ofResource(String resource, ClassLoader classLoader) {
         try (Reader reader = new InputStreamReader(Objects.requireNonNull(classLoader.getResourceAsStream(resource)))) {
             return buildFromInputStream(resource, reader);
@@ -146,22 +461,16 @@ public class ConfigFactory {
 
     private Config buildFromInputStream(String file, Reader reader) throws ConfigurationException, IOException {
         if (file.endsWith(".properties")) {
-            var abstractConfiguration = configure(new PropertiesConfiguration());
-            abstractConfiguration.read(reader);
-            return new ApacheConfiguration2(Map.of(), abstractConfiguration);
+            return new ImmutableConfiguration(Map.of(), new PropertiesParser(separator).parse(reader), converters);
         } else if (file.endsWith(".json")) {
-            var abstractConfiguration = configure(new JSONConfiguration());
-            abstractConfiguration.read(reader);
-            return new ApacheConfiguration2(Map.of(), abstractConfiguration);
+            return new ImmutableConfiguration(Map.of(), TreeParser.json().parse(reader), converters);
         } else if (file.endsWith(".xml")) {
             var abstractConfiguration = configure(new XMLConfiguration());
             FileHandler handler = new FileHandler(abstractConfiguration);
             handler.load(reader);
-            return new ApacheConfiguration2(Map.of(), abstractConfiguration);
+            return new ImmutableConfiguration(Map.of(), store(abstractConfiguration), converters);
         } else if (file.endsWith(".yaml") || file.endsWith(".yml")) {
-            var abstractConfiguration = configure(new YAMLConfiguration());
-            abstractConfiguration.read(reader);
-            return new ApacheConfiguration2(Map.of(), abstractConfiguration);
+            return new ImmutableConfiguration(Map.of(), TreeParser.yaml().parse(reader), converters);
         } else {
             throw new ConfigException("Cannot determine resource type of " + file);
         }
@@ -169,6 +478,20 @@ public class ConfigFactory {
 
 
 
+    /*
+     * Commons Configuration is only used as a parsing front-end; its content (already
+     * interpolated) is copied into an immutable store
+     */
+    private static PropertyStore store(Configuration configuration) {
+        var store = FlatPropertyStore.builder();
+        configuration.getKeys().forEachRemaining(key -> {
+            List<String> values = configuration.getList(String.class, key);
+            store.addAll(key, values == null ? List.of() : values);
+        });
+        return store.build();
+    }
+
+
     private <T extends AbstractConfiguration> T configure(T configuration) {
         configuration.setConversionHandler(conversionHandler);
         if (hasMultivalueSeparator()) {
@@ -191,7 +514,7 @@ public class ConfigFactory {
         defaultValues.forEach(configuration::addProperty);
         var definitionMap = definitions.stream()
                 .collect(Collectors.toMap(PropertyDefinition::property,x->x));
-        return new ApacheConfiguration2(definitionMap,configuration);
+        return new ImmutableConfiguration(definitionMap, store(configuration), converters);
     }
 
 
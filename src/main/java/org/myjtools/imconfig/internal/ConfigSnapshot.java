@@ -0,0 +1,348 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.PropertyDefinition;
+import org.myjtools.imconfig.PropertyType;
+import org.myjtools.imconfig.types.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.zip.CRC32;
+
+
+/**
+ * Binary snapshot of a configuration, with its properties already merged and its
+ * definitions, so it can be loaded without parsing, merging or validating anything.
+ * <p>
+ * The layout is a 16-byte header (magic number, format version, payload length and CRC32
+ * of the payload) followed by the payload: a table of distinct strings, the keys in
+ * sorted order with the indexes of their values, and the property definitions. Integers
+ * are big-endian.
+ */
+final class ConfigSnapshot {
+
+    static final int MAGIC = 0x494D4353; // "IMCS"
+    static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    // property, description, flags and type
+    private static final int MIN_DEFINITION_SIZE = 10;
+
+    private static final byte TEXT = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte ENUM = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DURATION = 6;
+    private static final byte SIZE = 7;
+    private static final byte MAP = 8;
+
+    private static final byte REQUIRED = 1;
+    private static final byte MULTIVALUE = 2;
+    private static final byte DEFAULT_VALUE = 4;
+
+
+    private ConfigSnapshot() { }
+
+
+    /**
+     * Write the given properties and definitions to a file, replacing it if it exists
+     * @throws ConfigException if any definition has a type that cannot be written
+     */
+    static void write(SortedPropertyStore store, Map<String, PropertyDefinition> definitions, Path path) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(body)) {
+            output.writeInt(store.size());
+            for (int position = 0; position < store.size(); position++) {
+                String[] values = store.values(position);
+                output.writeInt(index(strings, store.key(position)));
+                output.writeInt(values.length);
+                for (String value : values) {
+                    output.writeInt(index(strings, value));
+                }
+            }
+            output.writeInt(definitions.size());
+            for (PropertyDefinition definition : definitions.values()) {
+                writeDefinition(output, strings, definition);
+            }
+        } catch (IOException e) {
+            throw new ConfigException(e);
+        }
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(body.size() + strings.size() * 16);
+        try (DataOutputStream output = new DataOutputStream(payload)) {
+            output.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+            body.writeTo(output);
+        } catch (IOException e) {
+            throw new ConfigException(e);
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] bytes = payload.toByteArray();
+        crc.update(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC)
+            .putShort(VERSION)
+            .putShort((short) 0)
+            .putInt(bytes.length)
+            .putInt((int) crc.getValue());
+        try (OutputStream output = Files.newOutputStream(path)) {
+            output.write(header.array());
+            output.write(bytes);
+        } catch (IOException e) {
+            throw new ConfigException("Cannot write configuration snapshot "+path, e);
+        }
+    }
+
+
+    /**
+     * Read a snapshot previously written with {@link #write(SortedPropertyStore, Map, Path)}
+     * @throws ConfigException if the file is not a valid snapshot
+     */
+    static ImmutableConfiguration read(Path path, ValueConverters converters) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ConfigException("Cannot read configuration snapshot "+path, e);
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new ConfigException(path+" is not a configuration snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new ConfigException("Unsupported version "+version+" of configuration snapshot "+path);
+        }
+        buffer.getShort();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length != buffer.remaining()) {
+            throw new ConfigException("Configuration snapshot "+path+" is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice());
+        if ((int) crc.getValue() != checksum) {
+            throw new ConfigException("Checksum mismatch in configuration snapshot "+path);
+        }
+        try {
+            return read(buffer, converters);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ConfigException("Malformed configuration snapshot "+path, e);
+        }
+    }
+
+
+    private static ImmutableConfiguration read(ByteBuffer buffer, ValueConverters converters) {
+        String[] strings = new String[count(buffer, 4)];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = count(buffer, 1);
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        String[] keys = new String[count(buffer, 8)];
+        String[][] values = new String[keys.length][];
+        for (int position = 0; position < keys.length; position++) {
+            keys[position] = strings[buffer.getInt()];
+            int size = count(buffer, 4);
+            values[position] = size == 0 ? PropertyStore.NO_VALUES : new String[size];
+            for (int i = 0; i < size; i++) {
+                values[position][i] = strings[buffer.getInt()];
+            }
+        }
+
+        int definitionCount = count(buffer, MIN_DEFINITION_SIZE);
+        Map<String, PropertyDefinition> definitions = new HashMap<>(definitionCount * 2);
+        for (int i = 0; i < definitionCount; i++) {
+            PropertyDefinition definition = readDefinition(buffer, strings);
+            definitions.put(definition.property(), definition);
+        }
+        return new ImmutableConfiguration(definitions, FlatPropertyStore.ofSorted(keys, values), converters);
+    }
+
+
+    private static void writeDefinition(
+        DataOutputStream output,
+        Map<String, Integer> strings,
+        PropertyDefinition definition
+    ) throws IOException {
+        output.writeInt(index(strings, definition.property()));
+        output.writeInt(index(strings, definition.description()));
+        int flags = (definition.required() ? REQUIRED : 0) | (definition.multivalue() ? MULTIVALUE : 0);
+        if (definition.defaultValue().isPresent()) {
+            output.writeByte(flags | DEFAULT_VALUE);
+            output.writeInt(index(strings, definition.defaultValue().get()));
+        } else {
+            output.writeByte(flags);
+        }
+        PropertyType type = definition.propertyType();
+        Class<?> typeClass = type.getClass();
+        if (typeClass == TextPropertyType.class) {
+            String pattern = ((TextPropertyType) type).pattern();
+            output.writeByte(TEXT);
+            output.writeInt(pattern == null ? -1 : index(strings, pattern));
+        } else if (typeClass == IntegerPropertyType.class) {
+            output.writeByte(INTEGER);
+            writeLong(output, ((IntegerPropertyType) type).min());
+            writeLong(output, ((IntegerPropertyType) type).max());
+        } else if (typeClass == DecimalPropertyType.class) {
+            output.writeByte(DECIMAL);
+            writeDouble(output, ((DecimalPropertyType) type).min());
+            writeDouble(output, ((DecimalPropertyType) type).max());
+        } else if (typeClass == EnumPropertyType.class) {
+            List<String> enumValues = ((EnumPropertyType) type).values();
+            output.writeByte(ENUM);
+            output.writeInt(enumValues.size());
+            for (String value : enumValues) {
+                output.writeInt(index(strings, value));
+            }
+        } else if (typeClass == BooleanPropertyType.class) {
+            output.writeByte(BOOLEAN);
+        } else if (typeClass == DurationPropertyType.class) {
+            Duration min = ((DurationPropertyType) type).min();
+            Duration max = ((DurationPropertyType) type).max();
+            output.writeByte(DURATION);
+            writeLong(output, min == null ? null : min.toNanos());
+            writeLong(output, max == null ? null : max.toNanos());
+        } else if (typeClass == SizePropertyType.class) {
+            output.writeByte(SIZE);
+            writeLong(output, ((SizePropertyType) type).min());
+            writeLong(output, ((SizePropertyType) type).max());
+        } else if (typeClass == MapPropertyType.class) {
+            Map<String, PropertyDefinition> entries = ((MapPropertyType) type).entries();
+            output.writeByte(MAP);
+            output.writeInt(entries.size());
+            for (var entry : entries.entrySet()) {
+                output.writeInt(index(strings, entry.getKey()));
+                writeDefinition(output, strings, entry.getValue());
+            }
+        } else {
+            throw new ConfigException(
+                "Property type "+typeClass.getName()+" of property "+definition.property()+
+                " cannot be written to a snapshot"
+            );
+        }
+    }
+
+
+    private static PropertyDefinition readDefinition(ByteBuffer buffer, String[] strings) {
+        var builder = PropertyDefinition.builder(strings[buffer.getInt()])
+            .description(strings[buffer.getInt()]);
+        byte flags = buffer.get();
+        builder.required((flags & REQUIRED) != 0).multivalue((flags & MULTIVALUE) != 0);
+        if ((flags & DEFAULT_VALUE) != 0) {
+            builder.defaultValue(strings[buffer.getInt()]);
+        }
+        byte type = buffer.get();
+        switch (type) {
+            case TEXT -> {
+                int pattern = buffer.getInt();
+                builder.textType(pattern < 0 ? null : strings[pattern]);
+            }
+            case INTEGER -> builder.integerType(readLong(buffer), readLong(buffer));
+            case DECIMAL -> builder.decimalType(readDouble(buffer), readDouble(buffer));
+            case ENUM -> {
+                String[] enumValues = new String[count(buffer, 4)];
+                for (int i = 0; i < enumValues.length; i++) {
+                    enumValues[i] = strings[buffer.getInt()];
+                }
+                builder.enumType(enumValues);
+            }
+            case BOOLEAN -> builder.booleanType();
+            case DURATION -> {
+                Long min = readLong(buffer);
+                Long max = readLong(buffer);
+                builder.durationType(
+                    min == null ? null : Duration.ofNanos(min),
+                    max == null ? null : Duration.ofNanos(max)
+                );
+            }
+            case SIZE -> builder.sizeType(readLong(buffer), readLong(buffer));
+            case MAP -> {
+                int size = count(buffer, 4 + MIN_DEFINITION_SIZE);
+                Map<String, PropertyDefinition> entries = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String name = strings[buffer.getInt()];
+                    entries.put(name, readDefinition(buffer, strings));
+                }
+                builder.mapType(entries);
+            }
+            default -> throw new IllegalArgumentException("Unknown property type "+type);
+        }
+        return builder.build();
+    }
+
+
+    /*
+     * Counts and lengths are checked against the remaining bytes before allocating
+     * anything, so a malformed snapshot cannot cause huge or negative allocations
+     */
+    private static int count(ByteBuffer buffer, int minElementSize) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / minElementSize) {
+            throw new IllegalArgumentException("Invalid count "+count+" at position "+(buffer.position() - 4));
+        }
+        return count;
+    }
+
+
+    private static int index(Map<String, Integer> strings, String string) {
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+
+    private static void writeLong(DataOutputStream output, Long value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value);
+        }
+    }
+
+
+    private static void writeDouble(DataOutputStream output, Double value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeDouble(value);
+        }
+    }
+
+
+    private static Long readLong(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : buffer.getLong();
+    }
+
+
+    private static Double readDouble(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : buffer.getDouble();
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+/**
+ * View of a sorted store including only the key equal to a given prefix and the keys
+ * below it.
+ */
+final class FilteredPropertyStore extends SubtreePropertyStore {
+
+    static SortedPropertyStore of(SortedPropertyStore store, String prefix) {
+        if (store instanceof FilteredPropertyStore filtered) {
+            if (prefix.equals(filtered.prefix) || isBelow(prefix, filtered.prefix)) {
+                return of(filtered.parent, prefix);
+            }
+            return isBelow(filtered.prefix, prefix) ? filtered : FlatPropertyStore.EMPTY;
+        }
+        var node = store.index().find(prefix);
+        return node == null ? FlatPropertyStore.EMPTY : new FilteredPropertyStore(store, prefix, node);
+    }
+
+
+    private FilteredPropertyStore(SortedPropertyStore parent, String prefix, KeyIndex.Node node) {
+        super(parent, prefix, node);
+    }
+
+
+    @Override
+    public String key(int position) {
+        return parent.key(parentPosition(position));
+    }
+
+
+    @Override
+    public int indexOf(String key, int hash) {
+        if (key.equals(prefix) || isBelow(key, prefix)) {
+            return position(parent.indexOf(key, hash));
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * Immutable flat storage of configuration properties.
+ * <p>
+ * Keys are kept in a sorted array, with a parallel array holding the values of each key,
+ * and an open-addressed hash index mapping every key to its position. Once built, a store
+ * is never modified, so it can be freely shared among configurations and threads.
+ */
+public final class FlatPropertyStore extends SortedPropertyStore {
+
+    private static final AtomicInteger STAMPS = new AtomicInteger();
+
+    public static final FlatPropertyStore EMPTY = new FlatPropertyStore(new String[0], new String[0][]);
+
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    /**
+     * Create a new store from unsorted pairs of keys and values. The given arrays are
+     * reused, so they must not be modified afterward.
+     */
+    static FlatPropertyStore of(String[] keys, String[][] values) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+        String[] sortedKeys = new String[keys.length];
+        String[][] sortedValues = new String[keys.length][];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        return new FlatPropertyStore(sortedKeys, sortedValues);
+    }
+
+
+    /**
+     * Create a new store from keys already sorted and their values. The given arrays are
+     * reused, so they must not be modified afterward.
+     */
+    static FlatPropertyStore ofSorted(String[] keys, String[][] values) {
+        return keys.length == 0 ? EMPTY : new FlatPropertyStore(keys, values);
+    }
+
+
+    /**
+     * Create a compact copy of the given store
+     */
+    static FlatPropertyStore copyOf(SortedPropertyStore store) {
+        if (store instanceof FlatPropertyStore flat) {
+            return flat;
+        }
+        String[] keys = new String[store.size()];
+        String[][] values = new String[store.size()][];
+        for (int position = 0; position < keys.length; position++) {
+            keys[position] = store.key(position);
+            values[position] = store.values(position);
+        }
+        return new FlatPropertyStore(keys, values);
+    }
+
+
+    private final String[] keys;
+    private final String[][] values;
+    private final int[] slots;
+    private final int mask;
+    private final int stamp = STAMPS.incrementAndGet();
+    private volatile PropertyTrie trie;
+
+
+    private FlatPropertyStore(String[] keys, String[][] values) {
+        this.keys = keys;
+        this.values = values;
+        int capacity = Integer.highestOneBit(Math.max(2, keys.length) * 2);
+        if (capacity < keys.length * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int position = 0; position < keys.length; position++) {
+            int slot = spread(keys[position].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = position + 1;
+        }
+    }
+
+
+    @Override
+    public int indexOf(String key, int hash) {
+        int slot = spread(hash) & mask;
+        int position;
+        while ((position = slots[slot]) != 0) {
+            if (keys[position - 1].equals(key)) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /*
+     * Resolve the composed key without actually creating it
+     */
+    @Override
+    public int indexOf(String prefix, String suffix) {
+        int hash = 31 * prefix.hashCode() + '.';
+        for (int i = 0; i < suffix.length(); i++) {
+            hash = 31 * hash + suffix.charAt(i);
+        }
+        int length = prefix.length() + 1 + suffix.length();
+        int slot = spread(hash) & mask;
+        int position;
+        while ((position = slots[slot]) != 0) {
+            String key = keys[position - 1];
+            if (key.length() == length &&
+                key.startsWith(prefix) &&
+                key.charAt(prefix.length()) == '.' &&
+                key.endsWith(suffix)
+            ) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /*
+     * Resolve the suffix of the key without actually creating it
+     */
+    @Override
+    public int indexOfSuffix(String key, int offset) {
+        int hash = 0;
+        for (int i = offset; i < key.length(); i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        int length = key.length() - offset;
+        int slot = spread(hash) & mask;
+        int position;
+        while ((position = slots[slot]) != 0) {
+            String candidate = keys[position - 1];
+            if (candidate.length() == length && key.regionMatches(offset, candidate, 0, length)) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    @Override
+    String[] lookup(KeyHandle key) {
+        int position = key.position(this);
+        return position < 0 ? null : values[position];
+    }
+
+
+    /**
+     * @return A number that identifies this store, used by {@link KeyHandle} to check
+     * whether a previously resolved position is still valid
+     */
+    int stamp() {
+        return stamp;
+    }
+
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+
+    @Override
+    public String key(int position) {
+        return keys[position];
+    }
+
+
+    @Override
+    String[] values(int position) {
+        return values[position];
+    }
+
+
+    /**
+     * @return The content of this store as a persistent trie, computed only once
+     */
+    @Override
+    PropertyTrie trie() {
+        PropertyTrie current = trie;
+        if (current == null) {
+            current = super.trie();
+            trie = current;
+        }
+        return current;
+    }
+
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+
+
+    /**
+     * Mutable collector of properties used to build a new {@link FlatPropertyStore}.
+     * Adding values to an existing key appends them to the previous ones.
+     */
+    public static final class Builder {
+
+        private final Map<String, List<String>> properties = new HashMap<>();
+
+        private Builder() { }
+
+
+        public Builder add(String key, String value) {
+            var keyValues = properties.computeIfAbsent(key, k -> new ArrayList<>());
+            if (value != null && !value.isEmpty()) {
+                keyValues.add(value);
+            }
+            return this;
+        }
+
+
+        public Builder addAll(String key, Collection<String> values) {
+            var keyValues = properties.computeIfAbsent(key, k -> new ArrayList<>());
+            for (String value : values) {
+                if (value != null && !value.isEmpty()) {
+                    keyValues.add(value);
+                }
+            }
+            return this;
+        }
+
+
+        public Builder set(String key, Collection<String> values) {
+            properties.remove(key);
+            return addAll(key, values);
+        }
+
+
+        public Builder remove(String key) {
+            properties.remove(key);
+            return this;
+        }
+
+
+        public boolean contains(String key) {
+            return properties.containsKey(key);
+        }
+
+
+        /**
+         * @return The values added to the given key, or <code>null</code> if the key has
+         * not been added
+         */
+        List<String> values(String key) {
+            var keyValues = properties.get(key);
+            return keyValues == null ? null : Collections.unmodifiableList(keyValues);
+        }
+
+
+        /**
+         * Replace every value with the result of the given function. Values replaced by
+         * an empty value are removed.
+         */
+        Builder replaceAll(UnaryOperator<String> function) {
+            for (var keyValues : properties.values()) {
+                keyValues.replaceAll(function);
+                keyValues.removeIf(value -> value == null || value.isEmpty());
+            }
+            return this;
+        }
+
+
+        public FlatPropertyStore build() {
+            if (properties.isEmpty()) {
+                return EMPTY;
+            }
+            String[] keys = properties.keySet().toArray(String[]::new);
+            Arrays.sort(keys);
+            String[][] values = new String[keys.length][];
+            for (int position = 0; position < keys.length; position++) {
+                var keyValues = properties.get(keys[position]);
+                values[position] = keyValues.isEmpty() ? NO_VALUES : keyValues.toArray(String[]::new);
+            }
+            return new FlatPropertyStore(keys, values);
+        }
+
+    }
+
+}
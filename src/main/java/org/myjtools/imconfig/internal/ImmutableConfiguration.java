@@ -0,0 +1,615 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.*;
+import org.myjtools.imconfig.types.DurationPropertyType;
+import org.myjtools.imconfig.types.SizePropertyType;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Default implementation of {@link Config}, backed by an immutable {@link PropertyStore}.
+ * <p>
+ * Values are stored already interpolated, so reading a property only involves a lookup in
+ * the store and, if required, a conversion to the requested type.
+ */
+public class ImmutableConfiguration extends AbstractConfiguration {
+
+    protected final PropertyStore store;
+    protected final ValueConverters converters;
+    private volatile TypedValueCache cache;
+    private volatile TypedValueCache multiValues;
+    private volatile TypedValueCache maps;
+    private volatile Map<String, String> map;
+    // never exposed directly, since Properties is mutable
+    private volatile Properties properties;
+
+
+    protected ImmutableConfiguration(
+        Map<String, PropertyDefinition> definitions,
+        PropertyStore store,
+        ValueConverters converters
+    ) {
+        super(definitions);
+        this.store = store;
+        this.converters = converters;
+    }
+
+
+    protected ImmutableConfiguration(Map<String, PropertyDefinition> definitions, PropertyStore store) {
+        this(definitions, store, ValueConverters.DEFAULT);
+    }
+
+
+    protected ImmutableConfiguration(PropertyStore store) {
+        this(Map.of(), store);
+    }
+
+
+    /*
+     * withPrefix, filtered and inner return views over the store of this configuration,
+     * so no property is copied; use materialize() to obtain a compact copy instead
+     */
+
+    @Override
+    public Config withPrefix(String keyPrefix) {
+        return new ImmutableConfiguration(definitions, PrefixedPropertyStore.of(store.sorted(), keyPrefix), converters);
+    }
+
+
+    @Override
+    public Config filtered(String keyPrefix) {
+        return new ImmutableConfiguration(definitions, FilteredPropertyStore.of(store.sorted(), keyPrefix), converters);
+    }
+
+
+    @Override
+    public Config inner(String keyPrefix) {
+        if (keyPrefix == null || keyPrefix.isEmpty()) {
+            return this;
+        }
+        return new ImmutableConfiguration(definitions, InnerPropertyStore.of(store.sorted(), keyPrefix), converters);
+    }
+
+
+    @Override
+    public Config materialize() {
+        if (store instanceof FlatPropertyStore || store instanceof PropertyTrie) {
+            return this;
+        }
+        return new ImmutableConfiguration(definitions, FlatPropertyStore.copyOf(store.sorted()), converters);
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+
+    @Override
+    public boolean isNotEmpty() {
+        return !store.isEmpty();
+    }
+
+
+    @Override
+    public boolean hasProperty(String key) {
+        return store.contains(key);
+    }
+
+
+    @Override
+    public boolean notHasProperty(String key) {
+        return !store.contains(key);
+    }
+
+
+    @Override
+    public boolean hasProperty(ConfigKey key) {
+        return lookup(key) != null;
+    }
+
+
+    @Override
+    public Stream<String> innerKeys() {
+        return store.sorted().index().root().childNames().stream();
+    }
+
+
+    @Override
+    public Stream<String> keys() {
+        return StreamSupport.stream(StoreSpliterator.keys(store.sorted()), false);
+    }
+
+
+    @Override
+    public Stream<Map.Entry<String, String>> entries() {
+        return StreamSupport.stream(StoreSpliterator.entries(store.sorted()), false);
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> get(String key, Class<T> type) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, type);
+        if (cached == null) {
+            cached = resolve(key, type);
+            typedValues.put(key, type, cached);
+        }
+        return (Optional<T>) cached;
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> get(ConfigKey key, Class<T> type) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key.name(), type);
+        if (cached == null) {
+            cached = resolve(key.name(), lookup(key), type);
+            typedValues.put(key.name(), type, cached);
+        }
+        return (Optional<T>) cached;
+    }
+
+
+    private <T> Optional<T> resolve(String key, Class<T> type) {
+        return resolve(key, store.lookup(key, key.hashCode()), type);
+    }
+
+
+    private <T> Optional<T> resolve(String key, String[] values, Class<T> type) {
+        String raw = raw(key, values);
+        return raw == null ? Optional.empty() : Optional.of(convert(raw, type));
+    }
+
+
+    /**
+     * @return The first value of the key, or its default value if it has none
+     */
+    private String raw(String key, String[] values) {
+        String raw = (values == null || values.length == 0 ? null : values[0]);
+        if (raw == null) {
+            var definition = definitions.get(key);
+            raw = (definition == null ? null : definition.defaultValue().orElse(null));
+        }
+        return raw;
+    }
+
+
+    @Override
+    public Optional<Integer> getInteger(String key) {
+        return get(key, Integer.class);
+    }
+
+
+    @Override
+    public Optional<Long> getLong(String key) {
+        return get(key, Long.class);
+    }
+
+
+    @Override
+    public Optional<Float> getFloat(String key) {
+        return get(key, Float.class);
+    }
+
+
+    @Override
+    public Optional<Double> getDouble(String key) {
+        return get(key, Double.class);
+    }
+
+
+    @Override
+    public Optional<String> getString(String key) {
+        return get(key, String.class);
+    }
+
+
+    @Override
+    public OptionalInt getOptionalInt(String key) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, OptionalInt.class);
+        if (cached == null) {
+            var value = get(key, Integer.class);
+            cached = value.isPresent() ? OptionalInt.of(value.get()) : OptionalInt.empty();
+            typedValues.put(key, OptionalInt.class, cached);
+        }
+        return (OptionalInt) cached;
+    }
+
+
+    @Override
+    public OptionalLong getOptionalLong(String key) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, OptionalLong.class);
+        if (cached == null) {
+            var value = get(key, Long.class);
+            cached = value.isPresent() ? OptionalLong.of(value.get()) : OptionalLong.empty();
+            typedValues.put(key, OptionalLong.class, cached);
+        }
+        return (OptionalLong) cached;
+    }
+
+
+    @Override
+    public OptionalDouble getOptionalDouble(String key) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, OptionalDouble.class);
+        if (cached == null) {
+            var value = get(key, Double.class);
+            cached = value.isPresent() ? OptionalDouble.of(value.get()) : OptionalDouble.empty();
+            typedValues.put(key, OptionalDouble.class, cached);
+        }
+        return (OptionalDouble) cached;
+    }
+
+
+    /*
+     * Durations and sizes are parsed only once and cached as primitive optionals, using
+     * their property type as marker, so subsequent reads do not allocate
+     */
+
+    @Override
+    public long getDurationNanos(String key, long defaultValue) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, DurationPropertyType.class);
+        if (cached == null) {
+            long nanos = super.getDurationNanos(key, Long.MIN_VALUE);
+            cached = hasValue(key, nanos) ? OptionalLong.of(nanos) : OptionalLong.empty();
+            typedValues.put(key, DurationPropertyType.class, cached);
+        }
+        return ((OptionalLong) cached).orElse(defaultValue);
+    }
+
+
+    @Override
+    public long getDurationNanos(ConfigKey key, long defaultValue) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key.name(), DurationPropertyType.class);
+        if (cached == null) {
+            return getDurationNanos(key.name(), defaultValue);
+        }
+        return ((OptionalLong) cached).orElse(defaultValue);
+    }
+
+
+    @Override
+    public long getSizeBytes(String key, long defaultValue) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key, SizePropertyType.class);
+        if (cached == null) {
+            long bytes = super.getSizeBytes(key, Long.MIN_VALUE);
+            cached = hasValue(key, bytes) ? OptionalLong.of(bytes) : OptionalLong.empty();
+            typedValues.put(key, SizePropertyType.class, cached);
+        }
+        return ((OptionalLong) cached).orElse(defaultValue);
+    }
+
+
+    @Override
+    public long getSizeBytes(ConfigKey key, long defaultValue) {
+        var typedValues = cache();
+        Object cached = typedValues.get(key.name(), SizePropertyType.class);
+        if (cached == null) {
+            return getSizeBytes(key.name(), defaultValue);
+        }
+        return ((OptionalLong) cached).orElse(defaultValue);
+    }
+
+
+    private boolean hasValue(String key, long parsed) {
+        return parsed != Long.MIN_VALUE || getString(key).isPresent();
+    }
+
+
+    /*
+     * The values are resolved and converted directly, without going through the cache of
+     * typed values, since the result already holds all of them
+     */
+    @Override
+    public ConfigValues read(ConfigReader reader) {
+        Object[] values = new Object[reader.size()];
+        for (int position = 0; position < values.length; position++) {
+            ConfigKey key = reader.key(position);
+            String raw = raw(key.name(), lookup(key));
+            if (raw != null) {
+                values[position] = convert(raw, reader.type(position));
+            }
+        }
+        return new ConfigValues(reader, values);
+    }
+
+
+    @Override
+    public <T> Optional<T> get(String key, Function<String, T> converter) {
+        return get(key, String.class).map(converter);
+    }
+
+
+    @Override
+    public <T> List<T> getList(String key, Class<T> type) {
+        return multiValue(key, type).list;
+    }
+
+
+    @Override
+    public <T> Set<T> getSet(String key, Class<T> type) {
+        return multiValue(key, type).set();
+    }
+
+
+    @Override
+    public <T> Stream<T> getStream(String key, Class<T> type) {
+        return getList(key, type).stream();
+    }
+
+
+    /*
+     * The map is built from the range of keys below the given one, found using the
+     * index of the store rather than visiting every key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getMap(String key, Class<T> type) {
+        var cache = maps();
+        Object cached = cache.get(key, type);
+        if (cached == null) {
+            var inner = InnerPropertyStore.of(store.sorted(), key);
+            Map<String, T> map = new LinkedHashMap<>();
+            for (int position = 0; position < inner.size(); position++) {
+                String innerKey = inner.key(position);
+                String value = inner.first(position);
+                if (!innerKey.isEmpty() && value != null) {
+                    map.put(innerKey, convert(value, type));
+                }
+            }
+            cached = map.isEmpty() ? Map.of() : Collections.unmodifiableMap(map);
+            cache.put(key, type, cached);
+        }
+        return (Map<String, T>) cached;
+    }
+
+
+    /*
+     * Primitive arrays are parsed only once, directly from the raw values, and shared
+     * since they are immutable
+     */
+
+    @Override
+    public IntArray getIntArray(String key) {
+        var cache = multiValues();
+        Object cached = cache.get(key, IntArray.class);
+        if (cached == null) {
+            String[] values = store.lookup(key, key.hashCode());
+            cached = IntArray.of(values == null ? IntStream.empty() :
+                Arrays.stream(values).mapToInt(value -> convert(value, Integer.class)));
+            cache.put(key, IntArray.class, cached);
+        }
+        return (IntArray) cached;
+    }
+
+
+    @Override
+    public LongArray getLongArray(String key) {
+        var cache = multiValues();
+        Object cached = cache.get(key, LongArray.class);
+        if (cached == null) {
+            String[] values = store.lookup(key, key.hashCode());
+            cached = LongArray.of(values == null ? LongStream.empty() :
+                Arrays.stream(values).mapToLong(value -> convert(value, Long.class)));
+            cache.put(key, LongArray.class, cached);
+        }
+        return (LongArray) cached;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private <T> MultiValue<T> multiValue(String key, Class<T> type) {
+        var cache = multiValues();
+        Object cached = cache.get(key, type);
+        if (cached == null) {
+            String[] values = store.lookup(key, key.hashCode());
+            if (values == null || values.length == 0) {
+                cached = MultiValue.EMPTY;
+            } else {
+                List<T> list = new ArrayList<>(values.length);
+                for (String value : values) {
+                    list.add(convert(value, type));
+                }
+                cached = new MultiValue<>(Collections.unmodifiableList(list));
+            }
+            cache.put(key, type, cached);
+        }
+        return (MultiValue<T>) cached;
+    }
+
+
+    /*
+     * Converted values of a multi-valued property, shared by every read of the same key
+     * and type. The set is only created when requested.
+     */
+    private static final class MultiValue<T> {
+
+        private static final MultiValue<Object> EMPTY = new MultiValue<>(List.of());
+
+        private final List<T> list;
+        private volatile Set<T> set;
+
+        private MultiValue(List<T> list) {
+            this.list = list;
+        }
+
+        private Set<T> set() {
+            Set<T> current = set;
+            if (current == null) {
+                current = list.isEmpty() ? Set.of() : Collections.unmodifiableSet(new LinkedHashSet<>(list));
+                set = current;
+            }
+            return current;
+        }
+    }
+
+
+    @Override
+    public Properties asProperties() {
+        Properties current = properties;
+        if (current == null) {
+            current = new Properties();
+            forEach(current::put);
+            properties = current;
+        }
+        return (Properties) current.clone();
+    }
+
+
+    /**
+     * @return An unmodifiable view of the configuration, created only once
+     */
+    @Override
+    public Map<String, String> asMap() {
+        Map<String, String> current = map;
+        if (current == null) {
+            current = new StoreMap(store.sorted());
+            map = current;
+        }
+        return current;
+    }
+
+
+    @Override
+    public void forEach(BiConsumer<String, String> consumer) {
+        var store = this.store.sorted();
+        for (int position = 0; position < store.size(); position++) {
+            String value = store.first(position);
+            consumer.accept(store.key(position), value == null ? "" : value);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        var store = this.store.sorted();
+        StringBuilder string = new StringBuilder("configuration:\n---------------\n");
+        for (int position = 0; position < store.size(); position++) {
+            String[] values = store.values(position);
+            String value = "<undefined>";
+            if (values.length == 1) {
+                value = values[0];
+            } else if (values.length > 1) {
+                value = Arrays.toString(values);
+            }
+            string
+                .append(store.key(position))
+                .append(" : ")
+                .append(value)
+                .append("\n");
+        }
+        return string.append("---------------").toString();
+    }
+
+
+    /**
+     * @return The underlying property store
+     */
+    public PropertyStore store() {
+        return store;
+    }
+
+
+    /**
+     * @return The converters used to convert the values of this configuration
+     */
+    ValueConverters converters() {
+        return converters;
+    }
+
+
+    /**
+     * @return The number of typed reads served from the cache of converted values
+     */
+    public long cacheHits() {
+        return cache().hits();
+    }
+
+
+    /**
+     * @return The number of typed reads that required a conversion
+     */
+    public long cacheMisses() {
+        return cache().misses();
+    }
+
+
+    private String[] lookup(ConfigKey key) {
+        return key instanceof KeyHandle handle ? store.lookup(handle) : store.lookup(key.name(), key.name().hashCode());
+    }
+
+
+    /*
+     * Lists and arrays are kept apart from single values, since they share the same
+     * key and type
+     */
+    private TypedValueCache multiValues() {
+        TypedValueCache current = multiValues;
+        if (current == null) {
+            current = new TypedValueCache(store.estimatedSize());
+            multiValues = current;
+        }
+        return current;
+    }
+
+
+    private TypedValueCache maps() {
+        TypedValueCache current = maps;
+        if (current == null) {
+            // only a few keys are expected to be read as maps
+            current = new TypedValueCache(0);
+            maps = current;
+        }
+        return current;
+    }
+
+
+    private TypedValueCache cache() {
+        TypedValueCache current = cache;
+        if (current == null) {
+            current = new TypedValueCache(store.estimatedSize());
+            cache = current;
+        }
+        return current;
+    }
+
+
+    private <T> T convert(String raw, Class<T> type) {
+        return converters.convert(raw, type);
+    }
+
+
+    @Override
+    public <T> T getObject(Class<T> configClass) {
+        if (!configClass.isAnnotationPresent(ConfigClass.class)) {
+            throw new ConfigException("Class "+configClass+" should be annotated with @ConfigClass");
+        }
+        return ObjectBinder.of(configClass).bind(this);
+    }
+
+
+    @Override
+    public <T> T as(Class<T> type) {
+        return InterfaceBinder.of(type).bind(this);
+    }
+}
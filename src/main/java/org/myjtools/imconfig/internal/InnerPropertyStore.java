@@ -0,0 +1,54 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+/**
+ * View of a sorted store including only the keys below a given prefix, with the prefix
+ * removed. The key equal to the prefix, if it exists, is included as an empty key.
+ */
+final class InnerPropertyStore extends SubtreePropertyStore {
+
+    static SortedPropertyStore of(SortedPropertyStore store, String prefix) {
+        if (store instanceof InnerPropertyStore inner) {
+            return of(inner.parent, inner.prefix + "." + prefix);
+        }
+        if (store instanceof PrefixedPropertyStore prefixed) {
+            if (prefix.equals(prefixed.prefix())) {
+                return prefixed.parent();
+            } else if (isBelow(prefix, prefixed.prefix())) {
+                return of(prefixed.parent(), prefix.substring(prefixed.prefix().length() + 1));
+            } else if (isBelow(prefixed.prefix(), prefix)) {
+                return PrefixedPropertyStore.of(prefixed.parent(), prefixed.prefix().substring(prefix.length() + 1));
+            }
+            return FlatPropertyStore.EMPTY;
+        }
+        var node = store.index().find(prefix);
+        return node == null ? FlatPropertyStore.EMPTY : new InnerPropertyStore(store, prefix, node);
+    }
+
+
+    private InnerPropertyStore(SortedPropertyStore parent, String prefix, KeyIndex.Node node) {
+        super(parent, prefix, node);
+    }
+
+
+    @Override
+    public String key(int position) {
+        if (position == 0 && hasSelf()) {
+            return "";
+        }
+        return parent.key(parentPosition(position)).substring(prefix.length() + 1);
+    }
+
+
+    @Override
+    public int indexOf(String key, int hash) {
+        if (key.isEmpty() && hasSelf()) {
+            return 0;
+        }
+        return position(parent.indexOf(prefix, key));
+    }
+
+}
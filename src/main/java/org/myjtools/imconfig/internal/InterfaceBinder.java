@@ -0,0 +1,415 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.ConfigProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.Function;
+
+
+/**
+ * Creates implementations of interfaces whose methods return the values of a configuration.
+ * <p>
+ * Every abstract method without parameters is wired to the property with the same name (or
+ * the key of its {@link ConfigProperty} annotation); the values are read and converted when
+ * the instance is created, and kept in final fields. The implementation class is generated
+ * once per interface as a hidden class, so each method is just a field read. If the hidden
+ * class cannot access the interface (for example, a non-public interface in a package not
+ * open to this module), a {@link Proxy} is used instead.
+ */
+final class InterfaceBinder<T> {
+
+    private static final ClassValue<InterfaceBinder<?>> BINDERS = new ClassValue<>() {
+        @Override
+        protected InterfaceBinder<?> computeValue(Class<?> type) {
+            return new InterfaceBinder<>(type);
+        }
+    };
+
+
+    @SuppressWarnings("unchecked")
+    static <T> InterfaceBinder<T> of(Class<T> type) {
+        return (InterfaceBinder<T>) BINDERS.get(type);
+    }
+
+
+    private final Class<T> type;
+    private final Method[] methods;
+    private final Function<Config, Object>[] readers;
+    private final Object[] defaultValues;
+    private final MethodHandle constructor;
+    private final Map<Method, Integer> methodIndexes = new HashMap<>();
+
+
+    @SuppressWarnings("unchecked")
+    private InterfaceBinder(Class<T> type) {
+        if (!type.isInterface()) {
+            throw new ConfigException(type + " is not an interface");
+        }
+        this.type = type;
+        this.methods = Arrays.stream(type.getMethods())
+            .filter(method -> Modifier.isAbstract(method.getModifiers()))
+            .sorted(Comparator.comparing(Method::getName))
+            .toArray(Method[]::new);
+        this.readers = (Function<Config, Object>[]) new Function<?, ?>[methods.length];
+        this.defaultValues = new Object[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            if (method.getParameterCount() > 0 || method.getReturnType() == void.class) {
+                throw new ConfigException("Method " + method + " cannot be bound to a property");
+            }
+            var annotation = method.getAnnotation(ConfigProperty.class);
+            String key = (annotation == null ? method.getName() : annotation.value());
+            readers[i] = ObjectBinder.reader(key, method.getReturnType(), method.getGenericReturnType());
+            defaultValues[i] = ObjectBinder.zero(method.getReturnType());
+            methodIndexes.put(method, i);
+        }
+        this.constructor = hiddenClassConstructor();
+    }
+
+
+    T bind(Config config) {
+        Object[] values = new Object[methods.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = readers[i].apply(config);
+            values[i] = (value == null ? defaultValues[i] : value);
+        }
+        if (constructor == null) {
+            return proxy(values);
+        }
+        try {
+            return type.cast(constructor.invokeExact(values));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ConfigException("Cannot create a new instance of " + type, e);
+        }
+    }
+
+
+    /*
+     * The class is defined in the package of the interface when this module has full
+     * access to it (as in the unnamed module); otherwise, it is defined in this package,
+     * as long as the interface and the types it returns are public and exported.
+     */
+    private MethodHandle hiddenClassConstructor() {
+        Module module = InterfaceBinder.class.getModule();
+        MethodHandles.Lookup lookup;
+        try {
+            module.addReads(type.getModule());
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            lookup = null;
+        }
+        if (lookup == null || !lookup.hasFullPrivilegeAccess()) {
+            if (!isPubliclyAccessible(type, module)) {
+                return null;
+            }
+            for (Method method : methods) {
+                Class<?> returnType = method.getReturnType();
+                while (returnType.isArray()) {
+                    returnType = returnType.getComponentType();
+                }
+                if (!returnType.isPrimitive() && !isPubliclyAccessible(returnType, module)) {
+                    return null;
+                }
+                module.addReads(returnType.getModule());
+            }
+            lookup = MethodHandles.lookup();
+        }
+        try {
+            String packageName = lookup.lookupClass().getPackageName();
+            String className = (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/") +
+                type.getSimpleName() + "$Config";
+            var hiddenClass = lookup.defineHiddenClass(classFile(className), true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return hiddenClass.findConstructor(hiddenClass.lookupClass(), MethodType.methodType(void.class, Object[].class))
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException | LinkageError e) {
+            // the class cannot be defined or linked from the chosen package
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new ConfigException("Cannot create an implementation of " + type, e);
+        }
+    }
+
+
+    /*
+     * Class access is checked by the JVM using only the flags of the class itself, so a
+     * public nested type is accessible even if the enclosing type is not
+     */
+    private static boolean isPubliclyAccessible(Class<?> type, Module module) {
+        return Modifier.isPublic(type.getModifiers()) && type.getModule().isExported(type.getPackageName(), module);
+    }
+
+
+    private T proxy(Object[] values) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (instance, method, arguments) -> {
+            Integer index = methodIndexes.get(method);
+            if (index != null) {
+                return values[index];
+            }
+            if (method.isDefault()) {
+                try {
+                    return InvocationHandler.invokeDefault(instance, method, arguments);
+                } catch (IllegalAccessException e) {
+                    throw new ConfigException("Cannot invoke default method " + method, e);
+                }
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(instance);
+                case "equals" -> instance == arguments[0];
+                case "toString" -> type.getName() + "@" + Integer.toHexString(System.identityHashCode(instance));
+                default -> throw new UnsupportedOperationException(method.toString());
+            };
+        });
+        return type.cast(proxy);
+    }
+
+
+    /*
+     * Hand-written class file for:
+     *
+     *   final class <package>.<Interface>$Config implements <Interface> {
+     *       private final <type0> value0; ...
+     *       <Interface>$Config(Object[] values) { value0 = (<type0>) values[0]; ... }
+     *       public <type0> <method0>() { return value0; } ...
+     *   }
+     *
+     * No branches are involved, so no stack map frames are required.
+     */
+    private byte[] classFile(String className) {
+        var pool = new ConstantPool();
+        int thisClass = pool.classInfo(className);
+        int superClass = pool.classInfo("java/lang/Object");
+        int interfaceClass = pool.classInfo(internalName(type));
+        int objectConstructor = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int codeName = pool.utf8("Code");
+        int[] fieldRefs = new int[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            fieldRefs[i] = pool.fieldRef(className, "value" + i, descriptor(methods[i].getReturnType()));
+        }
+        try {
+            var fields = new ByteArrayOutputStream();
+            var fieldsOut = new DataOutputStream(fields);
+            for (int i = 0; i < methods.length; i++) {
+                fieldsOut.writeShort(Modifier.PRIVATE | Modifier.FINAL);
+                fieldsOut.writeShort(pool.utf8("value" + i));
+                fieldsOut.writeShort(pool.utf8(descriptor(methods[i].getReturnType())));
+                fieldsOut.writeShort(0);
+            }
+
+            var methodsBytes = new ByteArrayOutputStream();
+            var methodsOut = new DataOutputStream(methodsBytes);
+            // constructor
+            var code = new ByteArrayOutputStream();
+            var codeOut = new DataOutputStream(code);
+            codeOut.writeByte(0x2A); // aload_0
+            codeOut.writeByte(0xB7); // invokespecial
+            codeOut.writeShort(objectConstructor);
+            for (int i = 0; i < methods.length; i++) {
+                Class<?> returnType = methods[i].getReturnType();
+                codeOut.writeByte(0x2A); // aload_0
+                codeOut.writeByte(0x2B); // aload_1
+                codeOut.writeByte(0x11); // sipush
+                codeOut.writeShort(i);
+                codeOut.writeByte(0x32); // aaload
+                Class<?> boxed = ObjectBinder.boxed(returnType);
+                codeOut.writeByte(0xC0); // checkcast
+                codeOut.writeShort(pool.classInfo(boxed.isArray() ? descriptor(boxed) : internalName(boxed)));
+                if (returnType.isPrimitive()) {
+                    codeOut.writeByte(0xB6); // invokevirtual
+                    codeOut.writeShort(pool.methodRef(
+                        internalName(boxed), returnType.getName() + "Value", "()" + descriptor(returnType)
+                    ));
+                }
+                codeOut.writeByte(0xB5); // putfield
+                codeOut.writeShort(fieldRefs[i]);
+            }
+            codeOut.writeByte(0xB1); // return
+            writeMethod(methodsOut, 0, pool.utf8("<init>"), pool.utf8("([Ljava/lang/Object;)V"), codeName, 4, 2, code.toByteArray());
+            // accessors
+            for (int i = 0; i < methods.length; i++) {
+                Class<?> returnType = methods[i].getReturnType();
+                code = new ByteArrayOutputStream();
+                codeOut = new DataOutputStream(code);
+                codeOut.writeByte(0x2A); // aload_0
+                codeOut.writeByte(0xB4); // getfield
+                codeOut.writeShort(fieldRefs[i]);
+                codeOut.writeByte(returnOpcode(returnType));
+                writeMethod(
+                    methodsOut,
+                    Modifier.PUBLIC | Modifier.FINAL,
+                    pool.utf8(methods[i].getName()),
+                    pool.utf8("()" + descriptor(returnType)),
+                    codeName,
+                    2,
+                    1,
+                    code.toByteArray()
+                );
+            }
+
+            var classBytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(classBytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(61);
+            pool.write(out);
+            out.writeShort(Modifier.FINAL | 0x1000 | 0x0020); // final, synthetic, super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceClass);
+            out.writeShort(methods.length);
+            out.write(fields.toByteArray());
+            out.writeShort(methods.length + 1);
+            out.write(methodsBytes.toByteArray());
+            out.writeShort(0);
+            return classBytes.toByteArray();
+        } catch (IOException e) {
+            throw new ConfigException(e);
+        }
+    }
+
+
+    private static void writeMethod(
+        DataOutputStream out,
+        int access,
+        int name,
+        int descriptor,
+        int codeName,
+        int maxStack,
+        int maxLocals,
+        byte[] code
+    ) throws IOException {
+        out.writeShort(access);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+
+    private static int returnOpcode(Class<?> type) {
+        if (type == long.class) {
+            return 0xAD; // lreturn
+        } else if (type == float.class) {
+            return 0xAE; // freturn
+        } else if (type == double.class) {
+            return 0xAF; // dreturn
+        } else if (type.isPrimitive()) {
+            return 0xAC; // ireturn
+        }
+        return 0xB0; // areturn
+    }
+
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+
+    private static String descriptor(Class<?> type) {
+        return MethodType.methodType(type).toMethodDescriptorString().substring(2);
+    }
+
+
+
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+
+        int classInfo(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            int ownerClass = classInfo(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + ":" + descriptor, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry(tag + owner + "." + name + ":" + descriptor, () -> {
+                out.writeByte(tag);
+                out.writeShort(ownerClass);
+                out.writeShort(nameAndType);
+            });
+        }
+
+
+        void write(DataOutputStream classOut) throws IOException {
+            classOut.writeShort(count);
+            classOut.write(bytes.toByteArray());
+        }
+
+
+        private interface Writer {
+            void write() throws IOException;
+        }
+
+
+        private int entry(String key, Writer writer) {
+            Integer index = entries.get(key);
+            if (index == null) {
+                try {
+                    writer.write();
+                } catch (IOException e) {
+                    throw new ConfigException(e);
+                }
+                index = count++;
+                entries.put(key, index);
+            }
+            return index;
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.apache.commons.configuration2.interpol.ConfigurationInterpolator;
+import org.apache.commons.configuration2.interpol.InterpolatorSpecification;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * Interpolation of variables such as <code>${key}</code> or <code>${sys:name}</code> for
+ * parsers that fill a store directly, without <code>commons-configuration2</code>.
+ * <p>
+ * Variables that cannot be resolved are kept as they are, so they can still be resolved
+ * once the store is merged with another one.
+ */
+final class Interpolation {
+
+    private Interpolation() { }
+
+
+    /**
+     * Variables are resolved with the same lookups used by commons-configuration2,
+     * using the first value of multi-valued properties
+     * @return The built store, with every value interpolated
+     */
+    static FlatPropertyStore interpolated(FlatPropertyStore.Builder store) {
+        var interpolator = interpolator(variable -> {
+            List<String> values = store.values(variable);
+            if (values == null) {
+                return null;
+            }
+            return values.isEmpty() ? "" : values.get(0);
+        });
+        store.replaceAll(value -> interpolated(interpolator, value));
+        return store.build();
+    }
+
+
+    /**
+     * Interpolate the values of the given keys using the content of a merged store
+     * @return The keys whose values have changed, with their interpolated values
+     */
+    static FlatPropertyStore interpolated(Collection<String> keys, PropertyStore merged) {
+        var interpolator = interpolator(variable -> {
+            String[] values = merged.lookup(variable, variable.hashCode());
+            if (values == null) {
+                return null;
+            }
+            return values.length == 0 ? "" : values[0];
+        });
+        var result = FlatPropertyStore.builder();
+        for (String key : keys) {
+            String[] values = merged.lookup(key, key.hashCode());
+            if (values == null) {
+                continue;
+            }
+            String[] interpolatedValues = new String[values.length];
+            boolean changed = false;
+            for (int i = 0; i < values.length; i++) {
+                interpolatedValues[i] = interpolated(interpolator, values[i]);
+                changed |= !values[i].equals(interpolatedValues[i]);
+            }
+            if (changed) {
+                result.addAll(key, Arrays.asList(interpolatedValues));
+            }
+        }
+        return result.build();
+    }
+
+
+    /**
+     * @return Whether the given value contains variables that are not resolved yet
+     */
+    static boolean isUnresolved(String value) {
+        return value.contains("${");
+    }
+
+
+    private static ConfigurationInterpolator interpolator(Function<String, Object> lookup) {
+        return ConfigurationInterpolator.fromSpecification(
+            new InterpolatorSpecification.Builder()
+                .withPrefixLookups(ConfigurationInterpolator.getDefaultPrefixLookups())
+                .withDefaultLookup(lookup::apply)
+                .create()
+        );
+    }
+
+
+    private static String interpolated(ConfigurationInterpolator interpolator, String value) {
+        if (!isUnresolved(value)) {
+            return value;
+        }
+        Object interpolatedValue = interpolator.interpolate(value);
+        return interpolatedValue == null ? null : interpolatedValue.toString();
+    }
+
+}
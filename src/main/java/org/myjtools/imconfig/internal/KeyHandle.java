@@ -0,0 +1,79 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.ConfigKey;
+
+
+/**
+ * Default implementation of {@link ConfigKey}. It keeps the hash of the key and the last
+ * resolved position, tagged with the stamp of the store where it was resolved. Both are
+ * packed in a single <code>long</code> so that updating the resolution never allocates.
+ * <p>
+ * Since stamps may eventually wrap around, a cached position is only used after checking
+ * that the store still has this key at that position; keys that were not found are always
+ * looked up again.
+ */
+public final class KeyHandle implements ConfigKey {
+
+    private static final long UNRESOLVED = -1L;
+
+    private final String name;
+    private final int hash;
+    private volatile long resolution = UNRESOLVED;
+
+
+    public KeyHandle(String name) {
+        this.name = name;
+        this.hash = name.hashCode();
+    }
+
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+
+    int hash() {
+        return hash;
+    }
+
+
+    /**
+     * @return The position of this key in the given store, or <code>-1</code> if it is not present
+     */
+    int position(FlatPropertyStore store) {
+        long current = resolution;
+        if (current != UNRESOLVED && (int) (current >>> 32) == store.stamp()) {
+            int position = (int) current;
+            if (position >= 0 && position < store.size() && store.key(position).equals(name)) {
+                return position;
+            }
+        }
+        int position = store.indexOf(name, hash);
+        resolution = ((long) store.stamp() << 32) | (position & 0xFFFFFFFFL);
+        return position;
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof KeyHandle handle && name.equals(handle.name);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
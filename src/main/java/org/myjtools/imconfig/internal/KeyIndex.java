@@ -0,0 +1,146 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.*;
+
+
+/**
+ * Trie of the dot-separated segments of the keys of a sorted store.
+ * <p>
+ * Since the keys of the store are sorted, all the keys starting with a given prefix are
+ * contiguous, so every node only needs to know the range of positions of the keys below
+ * it. This allows resolving prefix queries without traversing the whole store.
+ */
+public final class KeyIndex {
+
+    /**
+     * Node of the index, representing every key that starts with a given path
+     */
+    public static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<String> childNames = new ArrayList<>();
+        private int self = -1;
+        private int from = -1;
+        private int to = -1;
+
+
+        /**
+         * @return The distinct names of the next segment of the keys below this node,
+         * in the order they first appear
+         */
+        public List<String> childNames() {
+            return Collections.unmodifiableList(childNames);
+        }
+
+
+        /**
+         * @return The node of the given child segment, or <code>null</code> if it does not exist
+         */
+        public Node child(String name) {
+            return children.get(name);
+        }
+
+
+        /**
+         * @return The position of the key that is exactly the path of this node, or
+         * <code>-1</code> if there is no such key
+         */
+        public int self() {
+            return self;
+        }
+
+
+        /**
+         * @return The first position of the keys strictly below this node (that is,
+         * starting with the path of this node followed by a dot)
+         */
+        public int from() {
+            return from;
+        }
+
+
+        /**
+         * @return The position following the last key strictly below this node
+         */
+        public int to() {
+            return to;
+        }
+
+
+        /**
+         * @return The number of keys strictly below this node
+         */
+        public int size() {
+            return from < 0 ? 0 : to - from;
+        }
+
+
+        private Node childForUpdate(String name) {
+            Node child = children.get(name);
+            if (child == null) {
+                child = new Node();
+                children.put(name, child);
+                childNames.add(name);
+            }
+            return child;
+        }
+
+
+        private void include(int position) {
+            if (from < 0) {
+                from = position;
+            }
+            to = position + 1;
+        }
+
+    }
+
+
+    private final Node root = new Node();
+
+
+    KeyIndex(SortedPropertyStore store) {
+        for (int position = 0; position < store.size(); position++) {
+            String key = store.key(position);
+            Node node = root;
+            int start = 0;
+            int dot;
+            root.include(position);
+            while ((dot = key.indexOf('.', start)) >= 0) {
+                node = node.childForUpdate(key.substring(start, dot));
+                node.include(position);
+                start = dot + 1;
+            }
+            node.childForUpdate(key.substring(start)).self = position;
+        }
+    }
+
+
+    /**
+     * @return The root node, whose children are the first-level segments of every key
+     */
+    public Node root() {
+        return root;
+    }
+
+
+    /**
+     * @return The node of the given dot-separated path, or <code>null</code> if no key
+     * starts with that path
+     */
+    public Node find(String path) {
+        Node node = root;
+        int start = 0;
+        int dot;
+        while (node != null && (dot = path.indexOf('.', start)) >= 0) {
+            node = node.child(path.substring(start, dot));
+            start = dot + 1;
+        }
+        return node == null ? null : node.child(path.substring(start));
+    }
+
+}
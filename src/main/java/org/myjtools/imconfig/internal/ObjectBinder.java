@@ -0,0 +1,279 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigBinder;
+import org.myjtools.imconfig.ConfigClass;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.ConfigProperty;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * Creates instances of a class annotated with {@link org.myjtools.imconfig.ConfigClass}
+ * filled with the values of a configuration. The instance is created by, in order of
+ * preference:
+ * <ul>
+ *     <li>the canonical constructor, if the class is a record</li>
+ *     <li>the constructor whose parameters are all annotated with {@link ConfigProperty}</li>
+ *     <li>the constructor without parameters, setting every non-static field afterward</li>
+ * </ul>
+ * Members whose type is another {@link ConfigClass} type are bound recursively from the
+ * properties below their key, as well as the elements of <code>List</code>, <code>Set</code>
+ * and <code>Map&lt;String,?&gt;</code> members (for example, <code>datasources.main.url</code>
+ * is bound as the element <code>main</code> of a map with key <code>datasources</code>).
+ * <p>
+ * The constructor, keys and method handles are resolved only once per class, so binding
+ * an object only involves reading the properties and invoking the handles.
+ * <p>
+ * Binders registered as {@link ConfigBinder} services (usually generated at compile time)
+ * take precedence over this one.
+ */
+final class ObjectBinder<T> implements ConfigBinder<T> {
+
+    private static final ClassValue<ConfigBinder<?>> BINDERS = new ClassValue<>() {
+        @Override
+        protected ConfigBinder<?> computeValue(Class<?> type) {
+            ConfigBinder<?> registered = RegisteredBinders.BINDERS.get(type);
+            return registered != null ? registered : new ObjectBinder<>(type);
+        }
+    };
+
+
+    /*
+     * Registered binders are only loaded the first time an object is bound
+     */
+    private static final class RegisteredBinders {
+
+        private static final Map<Class<?>, ConfigBinder<?>> BINDERS = new HashMap<>();
+
+        static {
+            for (ConfigBinder<?> binder : ServiceLoader.load(ConfigBinder.class)) {
+                BINDERS.putIfAbsent(binder.type(), binder);
+            }
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static <T> ConfigBinder<T> of(Class<T> type) {
+        return (ConfigBinder<T>) BINDERS.get(type);
+    }
+
+
+    /*
+     * The reader obtains the value from the configuration (null if absent), the default
+     * value is the one used for absent properties (only not null for primitive types), and
+     * the setter is null for constructor parameters
+     */
+    private record Binding(Function<Config, Object> reader, Object defaultValue, MethodHandle setter) { }
+
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Binding[] parameters;
+    private final Binding[] fields;
+
+
+    private ObjectBinder(Class<T> type) {
+        this.type = type;
+        try {
+            var lookup = MethodHandles.lookup();
+            List<Binding> parameterBindings = new ArrayList<>();
+            List<Binding> fieldBindings = new ArrayList<>();
+            Constructor<?> selectedConstructor;
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                selectedConstructor = type.getDeclaredConstructor(
+                    Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new)
+                );
+                for (RecordComponent component : components) {
+                    var annotation = component.getAnnotation(ConfigProperty.class);
+                    String key = (annotation == null ? component.getName() : annotation.value());
+                    parameterBindings.add(binding(key, component.getType(), component.getGenericType(), null));
+                }
+            } else {
+                selectedConstructor = annotatedConstructor();
+                if (selectedConstructor != null) {
+                    for (Parameter parameter : selectedConstructor.getParameters()) {
+                        String key = parameter.getAnnotation(ConfigProperty.class).value();
+                        parameterBindings.add(binding(key, parameter.getType(), parameter.getParameterizedType(), null));
+                    }
+                } else {
+                    selectedConstructor = type.getDeclaredConstructor();
+                    for (Field field : type.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                            continue;
+                        }
+                        var annotation = field.getAnnotation(ConfigProperty.class);
+                        String key = (annotation == null ? field.getName() : annotation.value());
+                        field.setAccessible(true);
+                        var setter = lookup.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                        fieldBindings.add(binding(key, field.getType(), field.getGenericType(), setter));
+                    }
+                }
+            }
+            selectedConstructor.setAccessible(true);
+            this.parameters = parameterBindings.toArray(Binding[]::new);
+            this.fields = fieldBindings.toArray(Binding[]::new);
+            this.constructor = lookup.unreflectConstructor(selectedConstructor)
+                .asSpreader(Object[].class, parameters.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ConfigException e) {
+            throw e;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new ConfigException("Cannot create a new instance of "+type, e);
+        }
+    }
+
+
+    @Override
+    public Class<T> type() {
+        return type;
+    }
+
+
+    @Override
+    public T bind(Config config) {
+        try {
+            Object[] arguments = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                arguments[i] = value(config, parameters[i]);
+            }
+            Object instance = constructor.invokeExact(arguments);
+            for (Binding field : fields) {
+                Object value = field.reader.apply(config);
+                // primitive fields keep their initial value when the property is not present
+                if (value != null || field.defaultValue == null) {
+                    field.setter.invokeExact(instance, value);
+                }
+            }
+            return type.cast(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ConfigException("Cannot create a new instance of "+type, e);
+        }
+    }
+
+
+    private static Object value(Config config, Binding binding) {
+        Object value = binding.reader.apply(config);
+        return value == null ? binding.defaultValue : value;
+    }
+
+
+    private Constructor<?> annotatedConstructor() {
+        Constructor<?> selected = null;
+        for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+            if (candidate.getParameterCount() > 0 && Arrays.stream(candidate.getParameters())
+                .allMatch(parameter -> parameter.isAnnotationPresent(ConfigProperty.class))
+            ) {
+                if (selected != null) {
+                    throw new ConfigException(
+                        "Class "+type+" has more than one constructor annotated with @ConfigProperty"
+                    );
+                }
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+
+    private static Binding binding(String key, Class<?> type, Type genericType, MethodHandle setter) {
+        return new Binding(reader(key, type, genericType), zero(type), setter);
+    }
+
+
+    /**
+     * @return The zero value of the given type if it is primitive, <code>null</code> otherwise
+     */
+    static Object zero(Class<?> type) {
+        return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+    }
+
+
+    /*
+     * Nested objects and collections are read from inner views of the configuration,
+     * so no property is copied. Nested binders are obtained when binding rather than
+     * here, in order to allow recursive types.
+     */
+    static Function<Config, Object> reader(String key, Class<?> type, Type genericType) {
+        if (type.isAnnotationPresent(ConfigClass.class)) {
+            return config -> {
+                Config inner = config.inner(key);
+                return inner.isEmpty() ? null : of(type).bind(inner);
+            };
+        }
+        Class<?> elementType = typeArgument(genericType, type == Map.class ? 1 : 0);
+        if (type == Optional.class && elementType != null) {
+            var keyHandle = new KeyHandle(key);
+            return config -> config.get(keyHandle, elementType);
+        }
+        if ((type == List.class || type == Collection.class) && elementType != null) {
+            return elementType.isAnnotationPresent(ConfigClass.class) ?
+                config -> List.copyOf(nestedObjects(config.inner(key), elementType).values()) :
+                config -> config.getList(key, elementType);
+        }
+        if (type == Set.class && elementType != null) {
+            return elementType.isAnnotationPresent(ConfigClass.class) ?
+                config -> Set.copyOf(nestedObjects(config.inner(key), elementType).values()) :
+                config -> config.getSet(key, elementType);
+        }
+        if (type == Map.class && elementType != null && typeArgument(genericType, 0) == String.class) {
+            return elementType.isAnnotationPresent(ConfigClass.class) ?
+                config -> Collections.unmodifiableMap(nestedObjects(config.inner(key), elementType)) :
+                config -> config.getMap(key, elementType);
+        }
+        var keyHandle = new KeyHandle(key);
+        Class<?> valueType = boxed(type);
+        return config -> config.get(keyHandle, valueType).orElse(null);
+    }
+
+
+    /*
+     * Each first-level segment of the configuration is a nested object. Segments that are
+     * all numeric (as in list.0, list.1, ...) are sorted by their numeric value.
+     */
+    private static Map<String, Object> nestedObjects(Config config, Class<?> type) {
+        List<String> names = config.innerKeys().collect(Collectors.toCollection(ArrayList::new));
+        if (!names.isEmpty() && names.stream().allMatch(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))) {
+            names.sort(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+        }
+        Map<String, Object> objects = new LinkedHashMap<>();
+        var binder = of(type);
+        for (String name : names) {
+            objects.put(name, binder.bind(config.inner(name)));
+        }
+        return objects;
+    }
+
+
+    private static Class<?> typeArgument(Type genericType, int index) {
+        if (genericType instanceof ParameterizedType parameterized &&
+            parameterized.getActualTypeArguments().length > index &&
+            parameterized.getActualTypeArguments()[index] instanceof Class<?> argument
+        ) {
+            return argument;
+        }
+        return null;
+    }
+
+
+    static Class<?> boxed(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Property store composed of an ordered stack of immutable layers, where the properties of
+ * upper layers override the ones of the lower layers.
+ * <p>
+ * Creating an overlay costs nearly nothing, since no property is copied; instead, every
+ * lookup is resolved traversing the layers top-down. Once the stack is deeper than a given
+ * limit, or it has been looked up more than a given number of times, the layers are merged
+ * in the background into a single {@link PropertyTrie}, which is used from then on.
+ * Operations that need every property (such as iterating the keys) merge the layers
+ * right away.
+ */
+public final class OverlayPropertyStore extends PropertyStore {
+
+    /**
+     * Create a new store resulting of putting the delta store on top of the base store
+     * @param maxDepth The number of layers above which the store is flattened
+     * @param maxLookups The number of lookups above which the store is flattened
+     */
+    static PropertyStore of(PropertyStore base, PropertyStore delta, int maxDepth, int maxLookups) {
+        PropertyStore[] baseLayers = (base instanceof OverlayPropertyStore overlay && overlay.flattened == null) ?
+            overlay.layers :
+            new PropertyStore[] { base };
+        PropertyStore[] layers = new PropertyStore[baseLayers.length + 1];
+        layers[0] = delta;
+        System.arraycopy(baseLayers, 0, layers, 1, baseLayers.length);
+        var store = new OverlayPropertyStore(layers, maxLookups);
+        if (layers.length > maxDepth) {
+            store.flattenInBackground();
+        }
+        return store;
+    }
+
+
+    private final PropertyStore[] layers;
+    private final int maxLookups;
+    private final AtomicBoolean flattening = new AtomicBoolean();
+    private volatile PropertyTrie flattened;
+    // it is only used as a hint, so it is not updated atomically
+    private int lookups;
+
+
+    private OverlayPropertyStore(PropertyStore[] layers, int maxLookups) {
+        this.layers = layers;
+        this.maxLookups = maxLookups;
+    }
+
+
+    /**
+     * @return The number of layers of the store, or <code>1</code> if it has been already flattened
+     */
+    public int depth() {
+        return flattened == null ? layers.length : 1;
+    }
+
+
+    public boolean isFlattened() {
+        return flattened != null;
+    }
+
+
+    /**
+     * @return The layers of the store, from the top one to the bottom one
+     */
+    List<PropertyStore> layers() {
+        return List.of(layers);
+    }
+
+
+    @Override
+    public int size() {
+        return trie().size();
+    }
+
+
+    /*
+     * Keys overridden by upper layers are counted more than once, but the layers are
+     * not merged
+     */
+    @Override
+    int estimatedSize() {
+        PropertyTrie current = flattened;
+        if (current != null) {
+            return current.size();
+        }
+        long size = 0;
+        for (PropertyStore layer : layers) {
+            size += layer.estimatedSize();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+
+    @Override
+    String[] lookup(String key, int hash) {
+        PropertyTrie current = flattened;
+        if (current != null) {
+            return current.lookup(key, hash);
+        }
+        if (++lookups > maxLookups) {
+            flattenInBackground();
+        }
+        return lookup(key, hash, 0);
+    }
+
+
+    @Override
+    public SortedPropertyStore sorted() {
+        return trie().sorted();
+    }
+
+
+    /**
+     * @return The layers merged into a single trie, computing it if it has not been done yet
+     */
+    @Override
+    PropertyTrie trie() {
+        PropertyTrie current = flattened;
+        if (current == null) {
+            current = layers[layers.length - 1].trie();
+            for (int layer = layers.length - 2; layer >= 0; layer--) {
+                current = current.merge(layers[layer]);
+            }
+            flattened = current;
+        }
+        return current;
+    }
+
+
+    private void flattenInBackground() {
+        if (flattening.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(this::trie);
+        }
+    }
+
+
+    /*
+     * A property without value only shadows lower properties without value either;
+     * when the property below has values, the property is considered removed.
+     */
+    private String[] lookup(String key, int hash, int fromLayer) {
+        for (int layer = fromLayer; layer < layers.length; layer++) {
+            String[] values = layers[layer].lookup(key, hash);
+            if (values != null) {
+                if (values.length > 0) {
+                    return values;
+                }
+                String[] below = lookup(key, hash, layer + 1);
+                return below == null || below.length == 0 ? values : null;
+            }
+        }
+        return null;
+    }
+
+}
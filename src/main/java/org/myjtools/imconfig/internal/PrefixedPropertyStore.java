@@ -0,0 +1,63 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+/**
+ * View of a sorted store where every key is preceded by a given prefix and a dot.
+ */
+final class PrefixedPropertyStore extends SortedPropertyStore {
+
+    static SortedPropertyStore of(SortedPropertyStore store, String prefix) {
+        if (store instanceof PrefixedPropertyStore prefixed) {
+            return new PrefixedPropertyStore(prefixed.parent, prefix + "." + prefixed.prefix);
+        }
+        return new PrefixedPropertyStore(store, prefix);
+    }
+
+
+    private final SortedPropertyStore parent;
+    private final String prefix;
+
+
+    private PrefixedPropertyStore(SortedPropertyStore parent, String prefix) {
+        this.parent = parent;
+        this.prefix = prefix;
+    }
+
+
+    SortedPropertyStore parent() {
+        return parent;
+    }
+
+
+    String prefix() {
+        return prefix;
+    }
+
+
+    @Override
+    public int size() {
+        return parent.size();
+    }
+
+
+    @Override
+    public String key(int position) {
+        return prefix + "." + parent.key(position);
+    }
+
+
+    @Override
+    String[] values(int position) {
+        return parent.values(position);
+    }
+
+
+    @Override
+    public int indexOf(String key, int hash) {
+        return SubtreePropertyStore.isBelow(key, prefix) ? parent.indexOfSuffix(key, prefix.length() + 1) : -1;
+    }
+
+}
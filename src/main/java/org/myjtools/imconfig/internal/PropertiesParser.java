@@ -0,0 +1,286 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.myjtools.imconfig.ConfigException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Single-pass parser of <code>.properties</code> files that fills a {@link FlatPropertyStore}
+ * directly, without building the node model and layout of <code>PropertiesConfiguration</code>.
+ * <p>
+ * The result is the same as reading the file with <code>PropertiesConfiguration</code>:
+ * <ul>
+ *     <li>keys and values are separated by <code>=</code>, <code>:</code> or whitespace, and
+ *     lines starting with <code>#</code> or <code>!</code> are comments</li>
+ *     <li>lines ending with an odd number of backslashes continue in the next line</li>
+ *     <li>values are trimmed, and unknown escape sequences keep their backslash</li>
+ *     <li>repeated keys add values to the property, and values are split using the
+ *     multi-value separator, if any</li>
+ *     <li>variables such as <code>${key}</code> or <code>${sys:name}</code> are interpolated
+ *     once, after the whole file is read</li>
+ * </ul>
+ * Include directives are not supported. Parsers keep state while reading, so they must not
+ * be shared among threads.
+ */
+public final class PropertiesParser {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+
+    private final char separator;
+
+    private Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean interpolate;
+
+
+    /**
+     * @param separator The multi-value separator, or <code>0</code> if values are not split
+     */
+    public PropertiesParser(char separator) {
+        this.separator = separator;
+    }
+
+
+    /**
+     * Read the whole content of the given reader. The reader is not closed.
+     * @throws ConfigException if the content is malformed
+     */
+    public FlatPropertyStore parse(Reader reader) throws IOException {
+        this.reader = reader;
+        this.position = 0;
+        this.limit = 0;
+        this.interpolate = false;
+        var store = FlatPropertyStore.builder();
+        StringBuilder key = new StringBuilder();
+        StringBuilder value = new StringBuilder();
+        int c;
+        while ((c = skipWhitespace(true)) != EOF) {
+            if (c == '#' || c == '!') {
+                skipLine();
+                continue;
+            }
+            key.setLength(0);
+            value.setLength(0);
+            c = readKey(c, key);
+            if (c != '\n' && c != '\r' && c != EOF) {
+                readValue(c, value);
+            }
+            add(store, key.toString(), value.toString());
+        }
+        return interpolate ? Interpolation.interpolated(store) : store.build();
+    }
+
+
+    /*
+     * The key ends at the first unescaped separator or whitespace. Returns the first
+     * character of the value, or the line terminator if there is no value.
+     */
+    private int readKey(int c, StringBuilder key) throws IOException {
+        while (c != EOF && c != '\n' && c != '\r') {
+            if (c == '=' || c == ':') {
+                return skipWhitespace(false);
+            }
+            if (isWhitespace(c)) {
+                c = skipWhitespace(false);
+                return (c == '=' || c == ':') ? skipWhitespace(false) : c;
+            }
+            if (c == '\\') {
+                c = next();
+                if (c == '\n' || c == '\r') {
+                    c = continueLine(c);
+                    continue;
+                }
+                if (c == EOF) {
+                    break;
+                }
+                // escaped characters of keys never keep the backslash
+                int unescaped = unescape(c);
+                key.append((char) (unescaped < 0 ? c : unescaped));
+            } else {
+                key.append((char) c);
+            }
+            c = next();
+        }
+        return c;
+    }
+
+
+    private void readValue(int c, StringBuilder value) throws IOException {
+        int significant = 0;
+        while (c != EOF && c != '\n' && c != '\r') {
+            if (c == '\\') {
+                c = next();
+                if (c == '\n' || c == '\r') {
+                    c = continueLine(c);
+                    continue;
+                }
+                if (c == EOF) {
+                    break;
+                }
+                int unescaped = unescape(c);
+                if (unescaped < 0) {
+                    value.append('\\').append((char) c);
+                } else {
+                    value.append((char) unescaped);
+                }
+                significant = value.length();
+            } else {
+                if (c == '$' && peek() == '{') {
+                    interpolate = true;
+                }
+                value.append((char) c);
+                if (!isWhitespace(c)) {
+                    significant = value.length();
+                }
+            }
+            c = next();
+        }
+        value.setLength(significant);
+    }
+
+
+    /**
+     * @return The character represented by the escape sequence starting with the given
+     * character, or <code>-1</code> if it is not a known escape sequence
+     */
+    private int unescape(int c) throws IOException {
+        return switch (c) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case 'b' -> '\b';
+            case '\\', '\'', '"', ':', '=', '#', '!' -> c;
+            case 'u' -> unicode();
+            default -> -1;
+        };
+    }
+
+
+    private int unicode() throws IOException {
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(next(), 16);
+            if (digit < 0) {
+                throw new ConfigException("Malformed \\uxxxx encoding in properties file");
+            }
+            code = (code << 4) + digit;
+        }
+        return code;
+    }
+
+
+    /*
+     * Skip the line terminator and the leading whitespace of the next line, returning
+     * its first character
+     */
+    private int continueLine(int terminator) throws IOException {
+        if (terminator == '\r' && peek() == '\n') {
+            next();
+        }
+        return skipWhitespace(false);
+    }
+
+
+    private int skipWhitespace(boolean lineTerminators) throws IOException {
+        int c = next();
+        while (isWhitespace(c) || (lineTerminators && (c == '\n' || c == '\r'))) {
+            c = next();
+        }
+        return c;
+    }
+
+
+    private void skipLine() throws IOException {
+        int c = next();
+        while (c != EOF && c != '\n' && c != '\r') {
+            c = next();
+        }
+    }
+
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+
+    private int next() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+
+    private void add(FlatPropertyStore.Builder store, String key, String value) {
+        if (separator == 0) {
+            store.add(key, value);
+        } else {
+            split(store, key, value);
+        }
+    }
+
+
+    /*
+     * Same as the list delimiter handler of commons-configuration2: the separator and the
+     * backslash can be escaped, and every element is trimmed
+     */
+    private void split(FlatPropertyStore.Builder store, String key, String value) {
+        if (value.indexOf(separator) < 0 && value.indexOf('\\') < 0) {
+            store.add(key, value.trim());
+            return;
+        }
+        StringBuilder element = new StringBuilder();
+        boolean escaped = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (escaped) {
+                escaped = false;
+                if (c != separator && c != '\\') {
+                    element.append('\\');
+                }
+                element.append(c);
+            } else if (c == separator) {
+                store.add(key, element.toString().trim());
+                element.setLength(0);
+            } else if (c == '\\') {
+                escaped = true;
+            } else {
+                element.append(c);
+            }
+        }
+        if (escaped) {
+            element.append('\\');
+        }
+        store.add(key, element.toString().trim());
+    }
+
+}
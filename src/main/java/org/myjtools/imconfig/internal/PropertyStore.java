@@ -0,0 +1,94 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.List;
+
+
+/**
+ * Immutable storage of configuration properties.
+ * <p>
+ * Every store supports looking up the values of a single key. Iterating the properties in
+ * order is done through {@link #sorted()}, which some implementations may have to compute
+ * (only once) from their own internal structure.
+ * <p>
+ * A key with an empty value is stored with a zero-length value array.
+ */
+public abstract class PropertyStore {
+
+    static final String[] NO_VALUES = new String[0];
+
+
+    /**
+     * @return The number of keys of the store
+     */
+    public abstract int size();
+
+
+    /**
+     * @return An estimation of the number of keys of the store, that is cheap to compute
+     * and never forces the store to compute its whole content
+     */
+    int estimatedSize() {
+        return size();
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    /**
+     * @param hash The precomputed hash code of the key
+     * @return The values of the given key, or <code>null</code> if the key is not present.
+     * The returned array must not be modified.
+     */
+    abstract String[] lookup(String key, int hash);
+
+
+    /**
+     * @return The values of the given key, or <code>null</code> if the key is not present.
+     * The returned array must not be modified.
+     */
+    String[] lookup(KeyHandle key) {
+        return lookup(key.name(), key.hash());
+    }
+
+
+    /**
+     * @return A view of this store that allows accessing the properties in key order
+     */
+    public abstract SortedPropertyStore sorted();
+
+
+    /**
+     * @return The content of this store as a persistent trie
+     */
+    PropertyTrie trie() {
+        var sorted = sorted();
+        PropertyTrie trie = PropertyTrie.EMPTY;
+        for (int position = 0; position < sorted.size(); position++) {
+            trie = trie.with(sorted.key(position), sorted.values(position));
+        }
+        return trie;
+    }
+
+
+    public boolean contains(String key) {
+        return lookup(key, key.hashCode()) != null;
+    }
+
+
+    /**
+     * @return The values of the given key as an unmodifiable list, empty if the key is not
+     * present or has no value
+     */
+    public List<String> values(String key) {
+        String[] values = lookup(key, key.hashCode());
+        return values == null ? List.of() : List.of(values);
+    }
+
+}
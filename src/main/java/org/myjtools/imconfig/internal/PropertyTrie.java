@@ -0,0 +1,281 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Persistent property store implemented as a hash array mapped trie (HAMT).
+ * <p>
+ * Adding or removing a key creates a new trie that only copies the nodes in the path to
+ * that key, sharing the rest of the structure with the original one. This way, deriving
+ * a configuration that changes a few keys of a large one costs proportionally to the
+ * changed keys rather than to the whole configuration.
+ */
+public final class PropertyTrie extends PropertyStore {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    public static final PropertyTrie EMPTY = new PropertyTrie(new Node(0, new Object[0]), 0);
+
+
+    private record Leaf(String key, int hash, String[] values) { }
+
+    private record Collision(int hash, Leaf[] leaves) { }
+
+    private record Node(int bitmap, Object[] children) { }
+
+
+    private final Node root;
+    private final int size;
+    private volatile FlatPropertyStore sorted;
+
+
+    private PropertyTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    String[] lookup(String key, int hash) {
+        Object current = root;
+        int shift = 0;
+        while (current instanceof Node node) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            current = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        if (current instanceof Leaf leaf) {
+            return leaf.hash == hash && leaf.key.equals(key) ? leaf.values : null;
+        }
+        Collision collision = (Collision) current;
+        if (collision.hash == hash) {
+            for (Leaf leaf : collision.leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf.values;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * @return A new trie with the given key set to the given values
+     */
+    public PropertyTrie with(String key, String[] values) {
+        int hash = key.hashCode();
+        boolean existing = lookup(key, hash) != null;
+        Node newRoot = (Node) put(root, new Leaf(key, hash, values), 0);
+        return new PropertyTrie(newRoot, existing ? size : size + 1);
+    }
+
+
+    /**
+     * @return A new trie without the given key, or this same trie if the key is not present
+     */
+    public PropertyTrie without(String key) {
+        int hash = key.hashCode();
+        if (lookup(key, hash) == null) {
+            return this;
+        }
+        Object newRoot = remove(root, key, hash, 0);
+        if (newRoot == null) {
+            return EMPTY;
+        }
+        if (newRoot instanceof Leaf leaf) {
+            newRoot = new Node(1 << (leaf.hash & MASK), new Object[] { leaf });
+        } else if (newRoot instanceof Collision collision) {
+            newRoot = new Node(1 << (collision.hash & MASK), new Object[] { collision });
+        }
+        return new PropertyTrie((Node) newRoot, size - 1);
+    }
+
+
+    /**
+     * @return A new trie resulting of overriding the properties of this trie with the ones
+     * of the given store. A property without value in the given store only overrides a
+     * property that does not exist or has no value either; otherwise, the property is removed.
+     */
+    PropertyTrie merge(PropertyStore delta) {
+        var sortedDelta = delta.sorted();
+        PropertyTrie result = this;
+        for (int position = 0; position < sortedDelta.size(); position++) {
+            String key = sortedDelta.key(position);
+            String[] values = sortedDelta.values(position);
+            if (values.length > 0) {
+                result = result.with(key, values);
+            } else {
+                String[] existing = result.lookup(key, key.hashCode());
+                if (existing == null) {
+                    result = result.with(key, values);
+                } else if (existing.length > 0) {
+                    result = result.without(key);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    @Override
+    PropertyTrie trie() {
+        return this;
+    }
+
+
+    /**
+     * Perform an action for every key and its values, in no particular order
+     */
+    void forEach(BiConsumer<String, String[]> action) {
+        forEach(root, action);
+    }
+
+
+    @Override
+    public SortedPropertyStore sorted() {
+        FlatPropertyStore current = sorted;
+        if (current == null) {
+            String[] keys = new String[size];
+            String[][] values = new String[size][];
+            int[] position = { 0 };
+            forEach((key, keyValues) -> {
+                keys[position[0]] = key;
+                values[position[0]] = keyValues;
+                position[0]++;
+            });
+            current = FlatPropertyStore.of(keys, values);
+            sorted = current;
+        }
+        return current;
+    }
+
+
+
+    private static Object put(Object current, Leaf leaf, int shift) {
+        if (current instanceof Node node) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int index = Integer.bitCount(node.bitmap & (bit - 1));
+            if ((node.bitmap & bit) == 0) {
+                Object[] children = new Object[node.children.length + 1];
+                System.arraycopy(node.children, 0, children, 0, index);
+                children[index] = leaf;
+                System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+                return new Node(node.bitmap | bit, children);
+            }
+            Object[] children = node.children.clone();
+            children[index] = put(node.children[index], leaf, shift + BITS);
+            return new Node(node.bitmap, children);
+        }
+        if (current instanceof Leaf existing) {
+            if (existing.hash == leaf.hash) {
+                return existing.key.equals(leaf.key) ?
+                    leaf :
+                    new Collision(leaf.hash, new Leaf[] { existing, leaf });
+            }
+            return split(existing, existing.hash, leaf, shift);
+        }
+        Collision collision = (Collision) current;
+        if (collision.hash != leaf.hash) {
+            return split(collision, collision.hash, leaf, shift);
+        }
+        Leaf[] leaves = collision.leaves;
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i].key.equals(leaf.key)) {
+                leaves = leaves.clone();
+                leaves[i] = leaf;
+                return new Collision(collision.hash, leaves);
+            }
+        }
+        leaves = Arrays.copyOf(leaves, leaves.length + 1);
+        leaves[leaves.length - 1] = leaf;
+        return new Collision(collision.hash, leaves);
+    }
+
+
+    /*
+     * Create a new node at the given level holding an existing entry (leaf or collision)
+     * and a new leaf with a different hash
+     */
+    private static Node split(Object existing, int existingHash, Leaf leaf, int shift) {
+        int existingIndex = (existingHash >>> shift) & MASK;
+        int leafIndex = (leaf.hash >>> shift) & MASK;
+        if (existingIndex == leafIndex) {
+            return new Node(1 << existingIndex, new Object[] { split(existing, existingHash, leaf, shift + BITS) });
+        }
+        Object[] children = existingIndex < leafIndex ?
+            new Object[] { existing, leaf } :
+            new Object[] { leaf, existing };
+        return new Node((1 << existingIndex) | (1 << leafIndex), children);
+    }
+
+
+    /*
+     * Remove the key from the given subtree, assuming it is present. Subtrees left with
+     * a single leaf are replaced by the leaf itself.
+     */
+    private static Object remove(Object current, String key, int hash, int shift) {
+        if (current instanceof Leaf) {
+            return null;
+        }
+        if (current instanceof Collision collision) {
+            Leaf[] leaves = Arrays.stream(collision.leaves)
+                .filter(leaf -> !leaf.key.equals(key))
+                .toArray(Leaf[]::new);
+            return leaves.length == 1 ? leaves[0] : new Collision(hash, leaves);
+        }
+        Node node = (Node) current;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object child = remove(node.children[index], key, hash, shift + BITS);
+        if (child != null) {
+            if (node.children.length == 1 && !(child instanceof Node)) {
+                return child;
+            }
+            Object[] children = node.children.clone();
+            children[index] = child;
+            return new Node(node.bitmap, children);
+        }
+        if (node.children.length == 1) {
+            return null;
+        }
+        if (node.children.length == 2 && !(node.children[1 - index] instanceof Node)) {
+            return node.children[1 - index];
+        }
+        Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+
+    private static void forEach(Object current, BiConsumer<String, String[]> action) {
+        if (current instanceof Node node) {
+            for (Object child : node.children) {
+                forEach(child, action);
+            }
+        } else if (current instanceof Leaf leaf) {
+            action.accept(leaf.key, leaf.values);
+        } else {
+            for (Leaf leaf : ((Collision) current).leaves) {
+                action.accept(leaf.key, leaf.values);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Property store whose keys can be accessed by their position in alphabetical order.
+ */
+public abstract class SortedPropertyStore extends PropertyStore {
+
+    private volatile KeyIndex index;
+    private volatile List<String> unresolvedKeys;
+
+
+    /**
+     * @return The key at the given position
+     */
+    public abstract String key(int position);
+
+
+    /**
+     * @return The values of the key at the given position. The returned array must not be
+     * modified.
+     */
+    abstract String[] values(int position);
+
+
+    /**
+     * @param hash The precomputed hash code of the key
+     * @return The position of the given key, or <code>-1</code> if it is not present
+     */
+    public abstract int indexOf(String key, int hash);
+
+
+    /**
+     * @return The position of the given key, or <code>-1</code> if it is not present
+     */
+    public int indexOf(String key) {
+        return indexOf(key, key.hashCode());
+    }
+
+
+    /**
+     * @return The position of the key composed by the given prefix, a dot, and the given
+     * suffix, or <code>-1</code> if it is not present
+     */
+    public int indexOf(String prefix, String suffix) {
+        return indexOf(prefix + "." + suffix);
+    }
+
+
+    /**
+     * @return The position of the key resulting of removing the first characters of the
+     * given one up to the given offset, or <code>-1</code> if it is not present
+     */
+    public int indexOfSuffix(String key, int offset) {
+        return indexOf(key.substring(offset));
+    }
+
+
+    /**
+     * @return The first value of the key at the given position, or <code>null</code> if
+     * the key has no value
+     */
+    public String first(int position) {
+        String[] keyValues = values(position);
+        return keyValues.length == 0 ? null : keyValues[0];
+    }
+
+
+    /**
+     * @return The index of the key segments, computed only once
+     */
+    public KeyIndex index() {
+        KeyIndex current = index;
+        if (current == null) {
+            current = new KeyIndex(this);
+            index = current;
+        }
+        return current;
+    }
+
+
+    /**
+     * @return The keys with any value containing variables not resolved yet, computed
+     * only once
+     */
+    List<String> unresolvedKeys() {
+        List<String> current = unresolvedKeys;
+        if (current == null) {
+            current = new ArrayList<>();
+            for (int position = 0; position < size(); position++) {
+                for (String value : values(position)) {
+                    if (Interpolation.isUnresolved(value)) {
+                        current.add(key(position));
+                        break;
+                    }
+                }
+            }
+            current = List.copyOf(current);
+            unresolvedKeys = current;
+        }
+        return current;
+    }
+
+
+    @Override
+    String[] lookup(String key, int hash) {
+        int position = indexOf(key, hash);
+        return position < 0 ? null : values(position);
+    }
+
+
+    @Override
+    public SortedPropertyStore sorted() {
+        return this;
+    }
+
+}
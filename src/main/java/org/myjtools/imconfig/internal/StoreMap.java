@@ -0,0 +1,76 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.*;
+
+
+/**
+ * Unmodifiable map view of a sorted store, where every key is mapped to its first value
+ * (or an empty string if the key has no value). Entries are iterated in key order.
+ */
+final class StoreMap extends AbstractMap<String, String> {
+
+    private final SortedPropertyStore store;
+    private final Set<Entry<String, String>> entries;
+
+
+    StoreMap(SortedPropertyStore store) {
+        this.store = store;
+        this.entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return Spliterators.iterator(StoreSpliterator.entries(store));
+            }
+            @Override
+            public Spliterator<Entry<String, String>> spliterator() {
+                return StoreSpliterator.entries(store);
+            }
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String string && store.indexOf(string) >= 0;
+    }
+
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String string)) {
+            return null;
+        }
+        int position = store.indexOf(string);
+        if (position < 0) {
+            return null;
+        }
+        String value = store.first(position);
+        return value == null ? "" : value;
+    }
+
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return entries;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+
+/**
+ * Spliterator over a range of positions of a sorted store. Since the store is immutable
+ * and its size is known, it can be split in halves of exact size, which makes parallel
+ * streams split evenly.
+ */
+final class StoreSpliterator<T> implements Spliterator<T> {
+
+    private static final int BASE_CHARACTERISTICS =
+        ORDERED | SIZED | SUBSIZED | IMMUTABLE | DISTINCT | NONNULL;
+
+
+    /**
+     * @return A spliterator over the keys of the store, in their natural order
+     */
+    static Spliterator<String> keys(SortedPropertyStore store) {
+        return new StoreSpliterator<>(store::key, 0, store.size(), BASE_CHARACTERISTICS | SORTED);
+    }
+
+
+    /**
+     * @return A spliterator over the keys of the store and their first values (or an empty
+     * string if the key has no value)
+     */
+    static Spliterator<Map.Entry<String, String>> entries(SortedPropertyStore store) {
+        IntFunction<Map.Entry<String, String>> entry = position -> {
+            String value = store.first(position);
+            return Map.entry(store.key(position), value == null ? "" : value);
+        };
+        return new StoreSpliterator<>(entry, 0, store.size(), BASE_CHARACTERISTICS);
+    }
+
+
+    private final IntFunction<T> element;
+    private final int characteristics;
+    private int from;
+    private final int to;
+
+
+    private StoreSpliterator(IntFunction<T> element, int from, int to, int characteristics) {
+        this.element = element;
+        this.from = from;
+        this.to = to;
+        this.characteristics = characteristics;
+    }
+
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (from >= to) {
+            return false;
+        }
+        action.accept(element.apply(from++));
+        return true;
+    }
+
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        int position = from;
+        from = to;
+        for (; position < to; position++) {
+            action.accept(element.apply(position));
+        }
+    }
+
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int middle = (from + to) >>> 1;
+        if (middle <= from) {
+            return null;
+        }
+        var prefix = new StoreSpliterator<>(element, from, middle, characteristics);
+        from = middle;
+        return prefix;
+    }
+
+
+    @Override
+    public long estimateSize() {
+        return (long) to - from;
+    }
+
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        if (hasCharacteristics(SORTED)) {
+            return null;
+        }
+        throw new IllegalStateException();
+    }
+
+}
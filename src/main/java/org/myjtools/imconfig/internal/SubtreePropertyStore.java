@@ -0,0 +1,81 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+/**
+ * Base class for views of the keys of a sorted store that start with a given prefix.
+ * <p>
+ * The view is formed by the key equal to the prefix (if it exists) followed by every key
+ * below the prefix; since the parent store is sorted, the latter are a contiguous range of
+ * positions, so no property has to be copied.
+ */
+abstract class SubtreePropertyStore extends SortedPropertyStore {
+
+    protected final SortedPropertyStore parent;
+    protected final String prefix;
+    private final int self;
+    private final int from;
+    private final int offset;
+    private final int size;
+
+
+    protected SubtreePropertyStore(SortedPropertyStore parent, String prefix, KeyIndex.Node node) {
+        this.parent = parent;
+        this.prefix = prefix;
+        this.self = node.self();
+        this.from = node.from();
+        this.offset = (self >= 0 ? 1 : 0);
+        this.size = offset + node.size();
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    String[] values(int position) {
+        return parent.values(parentPosition(position));
+    }
+
+
+    /**
+     * @return Whether the key equal to the prefix exists, in which case it is placed at
+     * the first position of the view
+     */
+    protected boolean hasSelf() {
+        return offset > 0;
+    }
+
+
+    protected int parentPosition(int position) {
+        return position < offset ? self : from + position - offset;
+    }
+
+
+    /**
+     * @return The position in this view of the given parent position, or <code>-1</code>
+     * if the parent position is not valid
+     */
+    protected int position(int parentPosition) {
+        if (parentPosition < 0) {
+            return -1;
+        }
+        return parentPosition == self ? 0 : offset + parentPosition - from;
+    }
+
+
+    /**
+     * @return Whether the given key is strictly below the given prefix
+     */
+    static boolean isBelow(String key, String prefix) {
+        return key.length() > prefix.length() &&
+            key.charAt(prefix.length()) == '.' &&
+            key.startsWith(prefix);
+    }
+
+}
@@ -0,0 +1,399 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLParser;
+import org.myjtools.imconfig.ConfigException;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+
+/**
+ * Parser of JSON and YAML documents that walks the token stream of Jackson and fills a
+ * {@link FlatPropertyStore} directly, without building any intermediate tree.
+ * <p>
+ * The result is the same as reading the document with <code>JSONConfiguration</code> or
+ * <code>YAMLConfiguration</code>:
+ * <ul>
+ *     <li>nested objects are flattened into dotted keys, and dots within field names
+ *     are escaped as <code>..</code></li>
+ *     <li>every element of an array (including nested arrays and the fields of arrays of
+ *     objects) is added as a value of the same key, and values are never split</li>
+ *     <li>null values, empty objects and empty arrays are ignored, and empty strings
+ *     define keys without values</li>
+ *     <li>YAML anchors, aliases and merge keys (<code>&lt;&lt;</code>) are resolved, up to
+ *     a limit of 100,000 expanded entries per document</li>
+ *     <li>variables such as <code>${key}</code> are interpolated once, after the whole
+ *     document is read</li>
+ * </ul>
+ * Unlike <code>YAMLConfiguration</code>, YAML dates are kept as they are written.
+ * Parsers keep state while reading, so they must not be shared among threads.
+ */
+public final class TreeParser {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+        .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+        .build();
+    private static final YAMLFactory YAML = new AnchorAwareYAMLFactory();
+    private static final String MERGE_KEY = "<<";
+    private static final int MAX_EXPANDED_ENTRIES = 100_000;
+    private static final int MAX_CODE_POINTS = 64 * 1024 * 1024;
+
+
+    /**
+     * Create a new parser of JSON documents
+     */
+    public static TreeParser json() {
+        return new TreeParser(JSON);
+    }
+
+
+    /**
+     * Create a new parser of YAML documents
+     */
+    public static TreeParser yaml() {
+        return new TreeParser(YAML);
+    }
+
+
+    /*
+     * The flattened content of an anchored node (or an inline merged object), with keys
+     * relative to the node
+     */
+    private record Recording(int prefix, List<String[]> entries) { }
+
+
+    private final JsonFactory factory;
+
+    private FlatPropertyStore.Builder store;
+    private final StringBuilder path = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private final List<Recording> recordings = new ArrayList<>();
+    private Map<String, List<String[]>> anchors;
+    private Recording capture;
+    private int captureLevel;
+    private int expandedEntries;
+    private boolean interpolate;
+
+
+    private TreeParser(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+
+    /**
+     * Read the whole content of the given reader. The reader is not closed.
+     * @throws ConfigException if the content is malformed or its root is not an object
+     */
+    public FlatPropertyStore parse(Reader reader) throws IOException {
+        this.store = FlatPropertyStore.builder();
+        this.path.setLength(0);
+        this.fields.clear();
+        this.recordings.clear();
+        this.anchors = null;
+        this.capture = null;
+        this.captureLevel = 0;
+        this.expandedEntries = 0;
+        this.interpolate = false;
+        try (JsonParser parser = factory.createParser(reader)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return FlatPropertyStore.EMPTY;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new ConfigException("The root of the document must be an object, but found "+token);
+            }
+            object(parser);
+        } catch (JacksonException e) {
+            throw new ConfigException(e);
+        }
+        return interpolate ? Interpolation.interpolated(store) : store.build();
+    }
+
+
+    private void value(JsonParser parser, JsonToken token) throws IOException {
+        String anchor = anchor(parser);
+        if (anchor != null) {
+            recordings.add(new Recording(path.length(), new ArrayList<>()));
+        }
+        switch (token) {
+            case START_OBJECT -> object(parser);
+            case START_ARRAY -> array(parser);
+            case VALUE_STRING -> {
+                if (isAlias(parser)) {
+                    replay(anchored(parser.getText()));
+                } else {
+                    String text = parser.getText();
+                    if (text.contains("${")) {
+                        interpolate = true;
+                    }
+                    add(path.toString(), text);
+                }
+            }
+            case VALUE_NUMBER_INT -> add(path.toString(), parser.getNumberValue().toString());
+            case VALUE_NUMBER_FLOAT -> add(path.toString(), String.valueOf(parser.getDoubleValue()));
+            case VALUE_TRUE -> add(path.toString(), "true");
+            case VALUE_FALSE -> add(path.toString(), "false");
+            case VALUE_EMBEDDED_OBJECT -> add(path.toString(), parser.getText());
+            default -> { }
+        }
+        if (anchor != null) {
+            Recording recording = recordings.remove(recordings.size() - 1);
+            if (anchors == null) {
+                anchors = new HashMap<>();
+            }
+            anchors.put(anchor, recording.entries());
+        }
+    }
+
+
+    private void object(JsonParser parser) throws IOException {
+        int length = path.length();
+        int firstField = fields.size();
+        List<List<String[]>> merged = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (factory == YAML && MERGE_KEY.equals(name)) {
+                if (merged == null) {
+                    merged = new ArrayList<>();
+                }
+                merged(parser, token, merged);
+                continue;
+            }
+            fields.add(name);
+            if (length > 0) {
+                path.append('.');
+            }
+            appendEscaped(name);
+            value(parser, token);
+            path.setLength(length);
+        }
+        if (merged != null) {
+            merge(merged, fields.subList(firstField, fields.size()));
+        }
+        fields.subList(firstField, fields.size()).clear();
+    }
+
+
+    private void array(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            value(parser, token);
+        }
+    }
+
+
+    /*
+     * Merge keys can be an alias, a list of aliases or an inline object. Their content
+     * is captured and merged once the explicit fields of the object are known.
+     */
+    private void merged(JsonParser parser, JsonToken token, List<List<String[]>> merged) throws IOException {
+        if (token == JsonToken.VALUE_STRING && isAlias(parser)) {
+            merged.add(anchored(parser.getText()));
+        } else if (token == JsonToken.START_ARRAY) {
+            JsonToken element;
+            while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+                merged(parser, element, merged);
+            }
+        } else if (token == JsonToken.START_OBJECT) {
+            Recording previousCapture = capture;
+            int previousCaptureLevel = captureLevel;
+            capture = new Recording(path.length(), new ArrayList<>());
+            captureLevel = recordings.size();
+            object(parser);
+            merged.add(capture.entries());
+            capture = previousCapture;
+            captureLevel = previousCaptureLevel;
+        } else {
+            throw new ConfigException("Invalid value for merge key at "+path+": "+parser.getText());
+        }
+    }
+
+
+    /*
+     * Merged fields never override explicit fields of the object, nor fields merged
+     * before them
+     */
+    private void merge(List<List<String[]>> merged, List<String> explicitFields) {
+        Set<String> excluded = new HashSet<>();
+        for (String field : explicitFields) {
+            excluded.add(field.replace(".", ".."));
+        }
+        String prefix = path.length() == 0 ? "" : path.toString();
+        for (List<String[]> entries : merged) {
+            expanded(entries.size());
+            Set<String> added = new HashSet<>();
+            for (String[] entry : entries) {
+                if (entry[0].isEmpty()) {
+                    throw new ConfigException("Only objects can be merged at "+path);
+                }
+                String field = firstField(entry[0]);
+                if (!excluded.contains(field)) {
+                    added.add(field);
+                    add(prefix.isEmpty() ? entry[0].substring(1) : prefix + entry[0], entry[1]);
+                }
+            }
+            excluded.addAll(added);
+        }
+    }
+
+
+    /*
+     * Relative keys of merged entries start with a dot followed by the escaped field name
+     */
+    private static String firstField(String relativeKey) {
+        int position = 1;
+        while (position < relativeKey.length()) {
+            if (relativeKey.charAt(position) == '.') {
+                if (position + 1 < relativeKey.length() && relativeKey.charAt(position + 1) == '.') {
+                    position += 2;
+                    continue;
+                }
+                break;
+            }
+            position++;
+        }
+        return relativeKey.substring(1, position);
+    }
+
+
+    private void replay(List<String[]> entries) {
+        expanded(entries.size());
+        String prefix = path.toString();
+        for (String[] entry : entries) {
+            add(entry[0].isEmpty() ? prefix : prefix + entry[0], entry[1]);
+        }
+    }
+
+
+    /*
+     * Aliases can refer to nodes that contain aliases themselves, so a small document
+     * could expand exponentially
+     */
+    private void expanded(int entries) {
+        expandedEntries += entries;
+        if (expandedEntries > MAX_EXPANDED_ENTRIES) {
+            throw new ConfigException(
+                "Aliases and merge keys expand to more than "+MAX_EXPANDED_ENTRIES+" entries at "+path
+            );
+        }
+    }
+
+
+    /*
+     * Values of inline merged objects are only captured, since they are added later by
+     * the merge itself. Empty values define a key without values.
+     */
+    private void add(String key, String value) {
+        for (int level = captureLevel; level < recordings.size(); level++) {
+            Recording recording = recordings.get(level);
+            recording.entries().add(new String[] { key.substring(recording.prefix()), value });
+        }
+        if (capture != null) {
+            capture.entries().add(new String[] { key.substring(capture.prefix()), value });
+        } else if (value.isEmpty()) {
+            store.addAll(key, List.of());
+        } else {
+            store.add(key, value);
+        }
+    }
+
+
+    private void appendEscaped(String name) {
+        if (name.indexOf('.') < 0) {
+            path.append(name);
+            return;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            path.append(c);
+            if (c == '.') {
+                path.append('.');
+            }
+        }
+    }
+
+
+    private List<String[]> anchored(String anchor) {
+        List<String[]> entries = anchors == null ? null : anchors.get(anchor);
+        if (entries == null) {
+            throw new ConfigException("Unknown anchor at "+path+": "+anchor);
+        }
+        return entries;
+    }
+
+
+    private static String anchor(JsonParser parser) throws IOException {
+        if (parser instanceof YAMLParser yamlParser && !yamlParser.isCurrentAlias()) {
+            return yamlParser.getObjectId();
+        }
+        return null;
+    }
+
+
+
+    /*
+     * The YAML parser of Jackson only reports the anchors of objects and arrays, and it
+     * limits documents to 3M characters by default, which is raised to 64M. Empty plain
+     * scalars are null in YAML, like in YAMLConfiguration.
+     */
+    private static final class AnchorAwareYAMLFactory extends YAMLFactory {
+
+        private static final long serialVersionUID = 1L;
+
+        private AnchorAwareYAMLFactory() {
+            super(YAMLFactory.builder()
+                .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+                .enable(YAMLParser.Feature.EMPTY_STRING_AS_NULL)
+                .loaderOptions(loaderOptions())
+            );
+        }
+
+        private static LoaderOptions loaderOptions() {
+            LoaderOptions options = new LoaderOptions();
+            options.setCodePointLimit(MAX_CODE_POINTS);
+            return options;
+        }
+
+        @Override
+        protected YAMLParser _createParser(Reader reader, IOContext context) {
+            return new AnchorAwareYAMLParser(context, _parserFeatures, _yamlParserFeatures, _loaderOptions, reader);
+        }
+    }
+
+
+    private static final class AnchorAwareYAMLParser extends YAMLParser {
+
+        private AnchorAwareYAMLParser(IOContext context, int features, int yamlFeatures, LoaderOptions options, Reader reader) {
+            super(context, features, yamlFeatures, options, null, reader);
+        }
+
+        @Override
+        public String getObjectId() throws IOException {
+            if (currentToken() != null && currentToken().isScalarValue() && _lastEvent instanceof ScalarEvent scalar) {
+                return scalar.getAnchor();
+            }
+            return super.getObjectId();
+        }
+    }
+
+
+    private static boolean isAlias(JsonParser parser) {
+        return parser instanceof YAMLParser yamlParser && yamlParser.isCurrentAlias();
+    }
+
+}
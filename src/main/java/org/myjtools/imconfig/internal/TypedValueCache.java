@@ -0,0 +1,98 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Bounded, lock-free cache of converted values, indexed by property key and target type.
+ * <p>
+ * The cache is a fixed-size table where each entry is an immutable object, so concurrent
+ * readers never see a partially written entry. Each (key,type) pair can be placed in any
+ * of a small group of consecutive slots; when the whole group is taken, the new entry
+ * replaces the first one. Since the cached values can always be computed again from the
+ * immutable store, losing an entry is harmless.
+ */
+public final class TypedValueCache {
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 14;
+    private static final int WAYS = 4;
+
+
+    private record Entry(String key, Class<?> type, Object value) { }
+
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    /**
+     * @param expectedKeys The number of keys that are expected to be cached. Since a key
+     *                     is usually read with more than one type, several slots are reserved
+     *                     per key. The actual capacity is bounded regardless this value.
+     */
+    public TypedValueCache(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, expectedKeys * 4)));
+        this.entries = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+
+    /**
+     * @return The cached value for the given key and type, or <code>null</code> if it is
+     * not cached
+     */
+    public Object get(String key, Class<?> type) {
+        int slot = slot(key, type);
+        for (int way = 0; way < WAYS; way++) {
+            Entry entry = entries.getAcquire((slot + way) & mask);
+            if (entry == null) {
+                break;
+            }
+            if (entry.type == type && (entry.key == key || entry.key.equals(key))) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+
+    public void put(String key, Class<?> type, Object value) {
+        int slot = slot(key, type);
+        for (int way = 0; way < WAYS; way++) {
+            int index = (slot + way) & mask;
+            Entry entry = entries.getAcquire(index);
+            if (entry == null || (entry.type == type && entry.key.equals(key))) {
+                entries.setRelease(index, new Entry(key, type, value));
+                return;
+            }
+        }
+        entries.setRelease(slot, new Entry(key, type, value));
+    }
+
+
+    public long hits() {
+        return hits.sum();
+    }
+
+
+    public long misses() {
+        return misses.sum();
+    }
+
+
+    private int slot(String key, Class<?> type) {
+        int hash = key.hashCode() * 31 + type.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.internal;
+
+
+import org.apache.commons.configuration2.convert.DefaultConversionHandler;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.ValueConverter;
+import org.myjtools.imconfig.types.DurationPropertyType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.Function;
+
+
+/**
+ * Immutable registry of value converters.
+ * <p>
+ * The converter of each type is resolved only once, using a {@link ClassValue}, in the
+ * following order: converters registered as services, built-in converters, enum constants,
+ * and finally the generic conversion of <code>commons-configuration2</code>. Converters
+ * added to a specific registry take precedence over all of them.
+ */
+public final class ValueConverters {
+
+    public static final ValueConverters DEFAULT = new ValueConverters(Map.of());
+
+    private static final Map<Class<?>, ValueConverter<?>> BUILT_IN = builtIn();
+
+    private static final ClassValue<ValueConverter<?>> CONVERTERS = new ClassValue<>() {
+        @Override
+        protected ValueConverter<?> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+
+    /*
+     * Converters registered as services are only loaded the first time a value is converted
+     */
+    private static final class RegisteredConverters {
+
+        private static final Map<Class<?>, ValueConverter<?>> CONVERTERS = new HashMap<>();
+
+        static {
+            for (ValueConverter<?> converter : ServiceLoader.load(ValueConverter.class)) {
+                CONVERTERS.putIfAbsent(converter.type(), converter);
+            }
+        }
+    }
+
+
+    private final Map<Class<?>, ValueConverter<?>> custom;
+
+
+    private ValueConverters(Map<Class<?>, ValueConverter<?>> custom) {
+        this.custom = custom;
+    }
+
+
+    /**
+     * @return A new registry with the given converter added
+     */
+    public ValueConverters with(ValueConverter<?> converter) {
+        Map<Class<?>, ValueConverter<?>> converters = new HashMap<>(custom);
+        converters.put(converter.type(), converter);
+        return new ValueConverters(Map.copyOf(converters));
+    }
+
+
+    /**
+     * @return The given raw value converted to the given type
+     * @throws ConfigException if the value cannot be converted
+     */
+    public <T> T convert(String value, Class<T> type) {
+        Class<?> boxed = ObjectBinder.boxed(type);
+        ValueConverter<?> converter = custom.isEmpty() ? null : custom.get(boxed);
+        if (converter == null) {
+            converter = CONVERTERS.get(boxed);
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            T converted = (T) converter.convert(value);
+            return converted;
+        } catch (ConfigException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ConfigException("Cannot convert '" + value + "' to " + type.getName(), e);
+        }
+    }
+
+
+    /**
+     * @return The built-in converter for the given type, or <code>null</code> if it has none
+     */
+    static ValueConverter<?> builtIn(Class<?> type) {
+        return BUILT_IN.get(type);
+    }
+
+
+    private static ValueConverter<?> resolve(Class<?> type) {
+        ValueConverter<?> converter = RegisteredConverters.CONVERTERS.get(type);
+        if (converter == null) {
+            converter = BUILT_IN.get(type);
+        }
+        if (converter == null && type.isEnum()) {
+            converter = enumConverter(type);
+        }
+        return converter == null ? generic(type) : converter;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> ValueConverter<E> enumConverter(Class<?> type) {
+        Class<E> enumType = (Class<E>) type;
+        return ValueConverter.of(enumType, value -> Enum.valueOf(enumType, value));
+    }
+
+
+    private static <T> ValueConverter<T> generic(Class<T> type) {
+        return ValueConverter.of(type, value -> DefaultConversionHandler.INSTANCE.to(value, type, null));
+    }
+
+
+    private static Map<Class<?>, ValueConverter<?>> builtIn() {
+        Map<Class<?>, ValueConverter<?>> converters = new HashMap<>();
+        add(converters, String.class, Function.identity());
+        add(converters, Boolean.class, ValueConverters::toBoolean);
+        add(converters, Character.class, ValueConverters::toCharacter);
+        add(converters, Integer.class, value -> {
+            BigInteger prefixed = prefixedInteger(value);
+            return prefixed == null ? Integer.valueOf(value) : prefixed.intValueExact();
+        });
+        add(converters, Long.class, value -> {
+            BigInteger prefixed = prefixedInteger(value);
+            return prefixed == null ? Long.valueOf(value) : prefixed.longValueExact();
+        });
+        add(converters, Short.class, value -> {
+            BigInteger prefixed = prefixedInteger(value);
+            return prefixed == null ? Short.valueOf(value) : prefixed.shortValueExact();
+        });
+        add(converters, Byte.class, value -> {
+            BigInteger prefixed = prefixedInteger(value);
+            return prefixed == null ? Byte.valueOf(value) : prefixed.byteValueExact();
+        });
+        add(converters, Double.class, Double::valueOf);
+        add(converters, Float.class, Float::valueOf);
+        add(converters, BigDecimal.class, BigDecimal::new);
+        add(converters, BigInteger.class, BigInteger::new);
+        add(converters, LocalTime.class, LocalTime::parse);
+        add(converters, LocalDate.class, LocalDate::parse);
+        add(converters, LocalDateTime.class, LocalDateTime::parse);
+        add(converters, Duration.class, value -> Duration.ofNanos(DurationPropertyType.toNanos(value)));
+        add(converters, Path.class, Path::of);
+        add(converters, URI.class, URI::create);
+        add(converters, UUID.class, UUID::fromString);
+        add(converters, Charset.class, Charset::forName);
+        add(converters, InetSocketAddress.class, ValueConverters::toSocketAddress);
+        return Map.copyOf(converters);
+    }
+
+
+    private static <T> void add(Map<Class<?>, ValueConverter<?>> converters, Class<T> type, Function<String, T> function) {
+        converters.put(type, ValueConverter.of(type, function));
+    }
+
+
+    private static Boolean toBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "on", "yes", "y", "t", "1" -> Boolean.TRUE;
+            case "false", "off", "no", "n", "f", "0" -> Boolean.FALSE;
+            default -> throw new ConfigException("The value " + value + " can't be converted to a Boolean object");
+        };
+    }
+
+
+    private static Character toCharacter(String value) {
+        if (value.length() != 1) {
+            throw new ConfigException("The value '" + value + "' cannot be converted to a Character object");
+        }
+        return value.charAt(0);
+    }
+
+
+    /*
+     * Integer values can be written in hexadecimal (0x...) or binary (0b...) notation
+     */
+    private static BigInteger prefixedInteger(String value) {
+        boolean negative = value.startsWith("-");
+        int start = negative ? 1 : 0;
+        if (value.length() > start + 2 && value.charAt(start) == '0') {
+            char radix = Character.toLowerCase(value.charAt(start + 1));
+            if (radix == 'x' || radix == 'b') {
+                BigInteger number = new BigInteger(value.substring(start + 2), radix == 'x' ? 16 : 2);
+                return negative ? number.negate() : number;
+            }
+        }
+        return null;
+    }
+
+
+    /*
+     * Values are in the form host:port (or [ipv6]:port), and the host name is not resolved
+     */
+    private static InetSocketAddress toSocketAddress(String value) {
+        int separator = value.lastIndexOf(':');
+        if (separator < 0) {
+            throw new ConfigException("The value '" + value + "' is not in the form host:port");
+        }
+        String host = value.substring(0, separator);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return InetSocketAddress.createUnresolved(host, Integer.parseInt(value.substring(separator + 1)));
+    }
+
+}
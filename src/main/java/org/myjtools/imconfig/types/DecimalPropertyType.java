@@ -14,6 +14,14 @@ public class DecimalPropertyType implements PropertyType {
         }
     }
 
+    public Double min() {
+        return min;
+    }
+
+    public Double max() {
+        return max;
+    }
+
     @Override
     public String name() {
         return "decimal";
@@ -0,0 +1,122 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.types;
+
+import org.myjtools.imconfig.PropertyType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Property type for time durations, expressed either as an amount followed by a unit
+ * (<code>ns</code>, <code>us</code>, <code>ms</code>, <code>s</code>, <code>m</code>,
+ * <code>h</code> or <code>d</code>, such as <code>250ms</code> or <code>1.5h</code>), as a
+ * plain amount of milliseconds, or in ISO-8601 format (such as <code>PT30S</code>).
+ */
+public class DurationPropertyType implements PropertyType {
+
+    private final Long min;
+    private final Long max;
+
+    public DurationPropertyType(Duration min, Duration max) {
+        this.min = (min == null ? null : min.toNanos());
+        this.max = (max == null ? null : max.toNanos());
+        if (this.min != null && this.max != null && this.min > this.max) {
+            throw new IllegalArgumentException("Minimum value cannot be greater than maximum value");
+        }
+    }
+
+    public Duration min() {
+        return min == null ? null : Duration.ofNanos(min);
+    }
+
+    public Duration max() {
+        return max == null ? null : Duration.ofNanos(max);
+    }
+
+    @Override
+    public String name() {
+        return "duration";
+    }
+
+    @Override
+    public String hint() {
+        String hint;
+        if (min==null && max==null) {
+            hint = "Any duration (e.g. 250ms, 30s, 5m)";
+        } else if (min==null) {
+            hint = "Duration less than "+max();
+        } else if (max==null) {
+            hint = "Duration greater than "+min();
+        } else {
+            hint = "Duration between "+min()+" and "+max();
+        }
+        return hint;
+    }
+
+
+    @Override
+    public boolean accepts(String value) {
+        try {
+            long nanos = toNanos(value);
+            return (min == null || nanos >= min) && (max == null || nanos <= max);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * @return The given duration expressed in nanoseconds
+     * @throws IllegalArgumentException if the value is not a valid duration
+     */
+    public static long toNanos(String value) {
+        String trimmed = value.trim();
+        if (trimmed.startsWith("P") || trimmed.startsWith("-P") || trimmed.startsWith("p")) {
+            try {
+                return Duration.parse(trimmed).toNanos();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid duration: "+value, e);
+            }
+        }
+        int unitStart = unitStart(trimmed);
+        long unit = switch (trimmed.substring(unitStart).trim().toLowerCase(Locale.ROOT)) {
+            case "ns" -> 1L;
+            case "us", "µs" -> 1_000L;
+            case "ms", "" -> 1_000_000L;
+            case "s" -> 1_000_000_000L;
+            case "m", "min" -> 60_000_000_000L;
+            case "h" -> 3_600_000_000_000L;
+            case "d" -> 86_400_000_000_000L;
+            default -> throw new IllegalArgumentException("Invalid duration unit: "+value);
+        };
+        return amount(trimmed.substring(0, unitStart), value)
+            .multiply(BigDecimal.valueOf(unit))
+            .setScale(0, RoundingMode.DOWN)
+            .longValueExact();
+    }
+
+
+    static int unitStart(String value) {
+        int position = 0;
+        while (position < value.length() &&
+            (Character.isDigit(value.charAt(position)) || "+-.".indexOf(value.charAt(position)) >= 0)
+        ) {
+            position++;
+        }
+        return position;
+    }
+
+
+    static BigDecimal amount(String amount, String value) {
+        try {
+            return new BigDecimal(amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: "+value, e);
+        }
+    }
+
+}
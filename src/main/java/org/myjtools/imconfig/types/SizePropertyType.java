@@ -0,0 +1,96 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.types;
+
+import org.myjtools.imconfig.PropertyType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Property type for data sizes, expressed as an amount of bytes optionally followed by a
+ * unit. Units <code>KB</code>, <code>MB</code>, <code>GB</code> and <code>TB</code> are
+ * powers of 1000, while <code>KiB</code>, <code>MiB</code>, <code>GiB</code> and
+ * <code>TiB</code> are powers of 1024 (such as <code>512MiB</code>).
+ */
+public class SizePropertyType implements PropertyType {
+
+    private final Long min;
+    private final Long max;
+
+    public SizePropertyType(Number min, Number max) {
+        this.min = (min == null ? null : min.longValue());
+        this.max = (max == null ? null : max.longValue());
+        if (this.min != null && this.max != null && this.min > this.max) {
+            throw new IllegalArgumentException("Minimum value cannot be greater than maximum value");
+        }
+    }
+
+    public Long min() {
+        return min;
+    }
+
+    public Long max() {
+        return max;
+    }
+
+    @Override
+    public String name() {
+        return "size";
+    }
+
+    @Override
+    public String hint() {
+        String hint;
+        if (min==null && max==null) {
+            hint = "Any data size (e.g. 512, 64KiB, 1GB)";
+        } else if (min==null) {
+            hint = "Data size less than "+max+" bytes";
+        } else if (max==null) {
+            hint = "Data size greater than "+min+" bytes";
+        } else {
+            hint = "Data size between "+min+" and "+max+" bytes";
+        }
+        return hint;
+    }
+
+
+    @Override
+    public boolean accepts(String value) {
+        try {
+            long bytes = toBytes(value);
+            return bytes >= 0 && (min == null || bytes >= min) && (max == null || bytes <= max);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * @return The given data size expressed in bytes
+     * @throws IllegalArgumentException if the value is not a valid data size
+     */
+    public static long toBytes(String value) {
+        String trimmed = value.trim();
+        int unitStart = DurationPropertyType.unitStart(trimmed);
+        long unit = switch (trimmed.substring(unitStart).trim().toLowerCase(Locale.ROOT)) {
+            case "", "b" -> 1L;
+            case "kb" -> 1_000L;
+            case "mb" -> 1_000_000L;
+            case "gb" -> 1_000_000_000L;
+            case "tb" -> 1_000_000_000_000L;
+            case "kib" -> 1L << 10;
+            case "mib" -> 1L << 20;
+            case "gib" -> 1L << 30;
+            case "tib" -> 1L << 40;
+            default -> throw new IllegalArgumentException("Invalid data size unit: "+value);
+        };
+        return DurationPropertyType.amount(trimmed.substring(0, unitStart), value)
+            .multiply(BigDecimal.valueOf(unit))
+            .setScale(0, RoundingMode.DOWN)
+            .longValueExact();
+    }
+
+}
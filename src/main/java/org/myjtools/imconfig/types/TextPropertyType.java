@@ -28,6 +28,6 @@ public class TextPropertyType implements PropertyType {
     }
 
     public String pattern() {
-        return this.pattern.pattern();
+        return this.pattern == null ? null : this.pattern.pattern();
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import org.myjtools.imconfig.ConfigException;
 import org.myjtools.imconfig.PropertyType;
 import org.myjtools.imconfig.types.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -49,10 +50,33 @@ public final class PropertyTypeFactory {
         if ("boolean".equals(type)) {
             return new BooleanPropertyType();
         }
+        if ("duration".equals(type)) {
+            return new DurationPropertyType(
+                duration(arguments.get("min")),
+                duration(arguments.get("max"))
+            );
+        }
+        if ("size".equals(type)) {
+            return new SizePropertyType(
+                size(arguments.get("min")),
+                size(arguments.get("max"))
+            );
+        }
         throw new ConfigException(
             "Undefined property type: "+ type +
-            " . Accepted values are: text, integer, decimal, enum, boolean, map"
+            " . Accepted values are: text, integer, decimal, enum, boolean, duration, size, map"
         );
     }
 
+
+
+    private static Duration duration(Object value) {
+        return value == null ? null : Duration.ofNanos(DurationPropertyType.toNanos(value.toString()));
+    }
+
+
+    private static Long size(Object value) {
+        return value == null ? null : SizePropertyType.toBytes(value.toString());
+    }
+
 }
@@ -3,7 +3,12 @@ module org.myjtools.imconfig.test {
     requires org.assertj.core;
     requires org.junit.jupiter.engine;
     requires org.junit.jupiter.params;
+    requires jdk.management;
+    requires org.apache.commons.configuration2;
 
     opens org.myjtools.imconfig.test to org.junit.platform.commons, org.myjtools.imconfig;
     exports org.myjtools.imconfig.test to org.myjtools.imconfig;
+    exports org.myjtools.imconfig.test.proxied to org.myjtools.imconfig;
+
+    provides org.myjtools.imconfig.ConfigBinder with org.myjtools.imconfig.test.TestConfigClassBinder;
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package org.myjtools.imconfig.test;
+
+
+import com.sun.management.ThreadMXBean;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.YAMLConfiguration;
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.internal.PropertiesParser;
+import org.myjtools.imconfig.internal.TreeParser;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * Time and memory allocated by the parsers and snapshots compared to the ones of
+ * commons-configuration2 and the original files. They only run on demand, with
+ * <code>mvn test -Dtest=TestBenchmarks -Dimconfig.benchmarks=true</code>
+ */
+@EnabledIfSystemProperty(named = "imconfig.benchmarks", matches = "true")
+class TestBenchmarks {
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int WARMUP = 3;
+
+
+    private interface Action {
+        Object run() throws Exception;
+    }
+
+
+    @Test
+    void propertiesParser() throws Exception {
+        String content = TestPropertiesParser.largeContent();
+        measure("100k lines: PropertiesParser", () -> new PropertiesParser(',').parse(new StringReader(content)));
+        measure("100k lines: PropertiesConfiguration", () -> {
+            var configuration = new PropertiesConfiguration();
+            configuration.setListDelimiterHandler(new DefaultListDelimiterHandler(','));
+            configuration.read(new StringReader(content));
+            return configuration;
+        });
+    }
+
+
+    @Test
+    void treeParser() throws Exception {
+        String content = TestTreeParser.largeContent();
+        measure("40k keys: TreeParser", () -> TreeParser.yaml().parse(new StringReader(content)));
+        measure("40k keys: YAMLConfiguration", () -> {
+            var configuration = new YAMLConfiguration();
+            configuration.read(new StringReader(content));
+            configuration.getKeys().forEachRemaining(key -> configuration.getList(String.class, key));
+            return configuration;
+        });
+    }
+
+
+    @Test
+    void snapshot(@TempDir Path folder) throws Exception {
+        Path yaml = Files.writeString(folder.resolve("config.yaml"), TestSnapshot.largeContent());
+        Path snapshot = folder.resolve("config.snapshot");
+        Config.ofPath(yaml).writeSnapshot(snapshot);
+        measure("20k keys: YAML file", () -> Config.ofPath(yaml).validate());
+        measure("20k keys: snapshot", () -> Config.ofSnapshot(snapshot));
+    }
+
+
+    private static void measure(String name, Action action) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            action.run();
+        }
+        long threadId = Thread.currentThread().threadId();
+        long start = System.nanoTime();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        action.run();
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - before;
+        long time = System.nanoTime() - start;
+        System.out.printf("%-40s %6d ms %8d KB%n", name, time / 1_000_000, allocated >> 10);
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.myjtools.imconfig.test;
+
+
+import org.junit.jupiter.api.Test;
+import org.myjtools.imconfig.internal.ByteBufferReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class TestByteBufferReader {
+
+    private static final String CONTENT = "a=😀ñ\n";
+
+
+    @Test
+    void contentIsDecodedOneCharAtATime() throws IOException {
+        var reader = reader(CONTENT);
+        var read = new StringBuilder();
+        char[] buffer = new char[1];
+        int count;
+        while ((count = reader.read(buffer, 0, 1)) != -1) {
+            assertThat(count).isEqualTo(1);
+            read.append(buffer[0]);
+        }
+        assertThat(read).hasToString(CONTENT);
+        assertThat(reader.read(buffer, 0, 1)).isEqualTo(-1);
+    }
+
+
+    @Test
+    void contentIsDecodedInBlocks() throws IOException {
+        var reader = reader(CONTENT);
+        char[] buffer = new char[16];
+        assertThat(reader.read(buffer, 0, buffer.length)).isEqualTo(CONTENT.length());
+        assertThat(new String(buffer, 0, CONTENT.length())).isEqualTo(CONTENT);
+        assertThat(reader.read(buffer, 0, buffer.length)).isEqualTo(-1);
+        assertThat(reader(CONTENT).read(buffer, 0, 0)).isZero();
+    }
+
+
+    private static ByteBufferReader reader(String content) {
+        return new ByteBufferReader(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+}
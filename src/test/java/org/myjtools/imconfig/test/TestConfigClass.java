@@ -12,6 +12,11 @@ public class TestConfigClass {
     @ConfigProperty("configClass.string")
     private String string;
 
+    @ConfigProperty("configClass.flag")
+    private boolean flag;
+
+    private long counter = -1;
+
     public Integer number() {
         return number;
     }
@@ -19,4 +24,12 @@ public class TestConfigClass {
     public String string() {
         return string;
     }
+
+    public boolean flag() {
+        return flag;
+    }
+
+    public long counter() {
+        return counter;
+    }
 }
@@ -0,0 +1,27 @@
+package org.myjtools.imconfig.test;
+
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigBinder;
+import org.myjtools.imconfig.ConfigClass;
+import org.myjtools.imconfig.ConfigKey;
+
+/**
+ * Hand-written equivalent of a binder generated by imconfig-processor
+ */
+public class TestConfigClassBinder implements ConfigBinder<TestConfigClassBinder.BoundSettings> {
+
+    @ConfigClass
+    public record BoundSettings(String name, boolean boundByService) { }
+
+    private static final ConfigKey NAME = Config.key("name");
+
+    @Override
+    public Class<BoundSettings> type() {
+        return BoundSettings.class;
+    }
+
+    @Override
+    public BoundSettings bind(Config config) {
+        return new BoundSettings(config.get(NAME, String.class).orElse(null), true);
+    }
+}
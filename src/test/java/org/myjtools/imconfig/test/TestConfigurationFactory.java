@@ -4,8 +4,10 @@
 package org.myjtools.imconfig.test;
 
 
+import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.myjtools.imconfig.Config;
@@ -14,14 +16,41 @@ import org.myjtools.imconfig.Config;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.myjtools.imconfig.Config.*;
 import org.myjtools.imconfig.AnnotatedConfig;
+import org.myjtools.imconfig.ConfigClass;
 import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.ConfigProperty;
+import org.myjtools.imconfig.ConfigReader;
+import org.myjtools.imconfig.IntArray;
 import org.myjtools.imconfig.Property;
+import org.myjtools.imconfig.ValueConverter;
+import org.myjtools.imconfig.internal.ConfigFactory;
+import org.myjtools.imconfig.internal.ImmutableConfiguration;
+import org.myjtools.imconfig.test.proxied.ProxiedSettings;
 
+import java.io.IOException;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -135,6 +164,87 @@ class TestConfigurationFactory {
 
 
 
+    @ParameterizedTest
+    @ValueSource(strings = {"test-conf.yaml","test-conf.yml","test-conf.json","test-conf.xml","test-conf.properties"})
+    void createConfigFromPath(String file) {
+        Config conf = ofPath(Path.of("src", "test", "resources", file));
+        assertExpectedPropertiesExist(conf);
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = {"large.properties", "large.yaml"})
+    void largeFilesAreReadTheSameFromPathAndURI(String file, @TempDir Path folder) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            String value = "valor número " + i + " \u00e9 ✓";
+            content.append(file.endsWith(".yaml") ? "key" + i + ": \"" + value + "\"\n" : "key" + i + "=" + value + "\n");
+        }
+        Path path = Files.writeString(folder.resolve(file), content, Charset.defaultCharset());
+        assertThat(Files.size(path)).isGreaterThan(64 * 1024);
+        Config conf = ofPath(path);
+        assertThat(conf.keys()).hasSize(5_000);
+        assertThat(conf.getString("key4999")).contains("valor número 4999 é ✓");
+        assertThat(conf.asMap()).isEqualTo(ofURI(path.toUri()).asMap());
+    }
+
+
+    @Test
+    void sourcesAreMergedInDeclarationOrder(@TempDir Path folder) throws Exception {
+        Path first = Files.writeString(folder.resolve("first.properties"), "a=1\nb=1\nc=1\n");
+        Path second = Files.writeString(folder.resolve("second.yaml"), "b: 2\nc: 2\n");
+        Path third = Files.writeString(folder.resolve("third.json"), "{ \"c\": 3, \"d\": [3, 4] }");
+        URI resource = CLASS_LOADER.getResource("test-conf.json").toURI();
+        AtomicInteger tasks = new AtomicInteger();
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            Thread.ofVirtual().start(task);
+        };
+
+        Config conf = Config.ofSources(List.of(resource, first.toUri(), second.toUri(), third.toUri()), executor);
+        assertExpectedPropertiesExist(conf);
+        assertThat(conf.getString("a")).contains("1");
+        assertThat(conf.getString("b")).contains("2");
+        assertThat(conf.getString("c")).contains("3");
+        assertThat(conf.getList("d", Integer.class)).containsExactly(3, 4);
+        assertThat(tasks).hasValue(4);
+        assertThat(Config.ofSources(List.of(first.toUri(), second.toUri(), third.toUri())).asMap())
+            .isEqualTo(ofPath(first).append(ofPath(second)).append(ofPath(third)).asMap());
+
+        // keys without value in a later source remove the values of previous sources
+        Path emptied = Files.writeString(folder.resolve("emptied.properties"), "a=\ne=\n");
+        Config merged = Config.ofSources(List.of(first.toUri(), emptied.toUri()));
+        Config appended = ofPath(first).append(ofPath(emptied));
+        assertThat(merged.getString("a")).isEmpty();
+        assertThat(merged.hasProperty("a")).isFalse();
+        assertThat(merged.keys()).containsExactlyElementsOf(appended.keys().toList());
+        assertThat(merged.asMap()).isEqualTo(appended.asMap());
+    }
+
+
+    @Test
+    void sourceErrorsReferToTheFailedSources(@TempDir Path folder) throws IOException {
+        URI valid = Files.writeString(folder.resolve("valid.yaml"), "a: 1\n").toUri();
+        URI missing = folder.resolve("missing.yaml").toUri();
+        URI malformed = Files.writeString(folder.resolve("malformed.json"), "{ \"a\": ").toUri();
+        assertThatCode(() -> Config.ofSources(List.of(valid, missing, malformed)))
+            .isInstanceOf(ConfigException.class)
+            .hasMessageStartingWith("Cannot read configuration source " + missing)
+            .satisfies(e -> assertThat(e.getSuppressed())
+                .singleElement()
+                .extracting(Throwable::getMessage, InstanceOfAssertFactories.STRING)
+                .startsWith("Cannot read configuration source " + malformed)
+            );
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("Executor is shut down");
+        };
+        assertThatCode(() -> Config.ofSources(List.of(valid), rejecting))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Cannot read configuration source " + valid + ": Executor is shut down")
+            .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+
     @Test
     void createConfigFromAnnotatedClass() throws ConfigException {
         Config conf = ofClass(ConfAnnotatedProps.class);
@@ -151,6 +261,26 @@ class TestConfigurationFactory {
     }
 
 
+    @Test
+    void variablesAreResolvedAcrossAppendedConfigurations(@TempDir Path folder) throws IOException {
+        Config conf = ofMap(Map.of("host", "h"))
+            .append(ofMap(Map.of("url", "http://${host}/x")));
+        assertThat(conf.getString("url")).contains("http://h/x");
+        assertThat(ofMap(Map.of("url", "http://${host}/x"))
+            .append(ofMap(Map.of("host", "h")))
+            .getString("url")
+        ).contains("http://h/x");
+        assertThat(ofMap(Map.of("url", "http://${missing}/x")).getString("url"))
+            .contains("http://${missing}/x");
+
+        Path first = Files.writeString(folder.resolve("first.properties"), "host=h\n");
+        Path second = Files.writeString(folder.resolve("second.yaml"), "url: http://${host}/x\n");
+        assertThat(ofPath(first).append(ofPath(second)).getString("url")).contains("http://h/x");
+        assertThat(Config.ofSources(List.of(first.toUri(), second.toUri())).getString("url"))
+            .contains("http://h/x");
+    }
+
+
     @Test
     void cannotCreateConfigFromMalformedFile() throws ConfigException {
         assertThatCode(
@@ -318,6 +448,132 @@ class TestConfigurationFactory {
     }
 
 
+    @Test
+    void prefixQueriesOnlyMatchWholeSegments() {
+        var conf = Config.ofMap(Map.of(
+            "datasource", "root",
+            "datasource.url", "a",
+            "datasource.pool.size", "b",
+            "datasource-backup.url", "c",
+            "datasources.url", "d"
+        ));
+        assertThat(conf.filtered("datasource").keys().toList())
+            .containsExactlyInAnyOrder("datasource", "datasource.url", "datasource.pool.size");
+        assertThat(conf.inner("datasource").keys().toList())
+            .containsExactlyInAnyOrder("", "url", "pool.size");
+        assertThat(conf.inner("datasource.pool").get("size", String.class)).contains("b");
+        assertThat(conf.inner("datasource").innerKeys().toList()).containsExactlyInAnyOrder("", "url", "pool");
+        assertThat(conf.innerKeys().toList())
+            .containsExactlyInAnyOrder("datasource", "datasource-backup", "datasources");
+        assertThat(conf.filtered("unknown").isEmpty()).isTrue();
+        assertThat(conf.inner("datasource.unknown").isEmpty()).isTrue();
+    }
+
+
+    @Test
+    void viewsOfViewsBehaveLikeCopies() {
+        var conf = Config.ofMap(Map.of(
+            "a", "0",
+            "a.b", "1",
+            "a.b.c", "2",
+            "a.b.d", "3",
+            "a.e", "4",
+            "f", "5"
+        ));
+        var key = Config.key("b.c");
+        var inner = conf.inner("a");
+        assertThat(inner.get(key, String.class)).contains("2");
+        assertThat(inner.get("", String.class)).contains("0");
+        assertThat(inner.inner("b").keys().toList()).containsExactly("", "c", "d");
+        assertThat(inner.inner("b").get("d", String.class)).contains("3");
+        assertThat(conf.filtered("a").filtered("a.b").keys().toList()).containsExactly("a.b", "a.b.c", "a.b.d");
+        assertThat(conf.filtered("a.b").filtered("a").keys().toList()).containsExactly("a.b", "a.b.c", "a.b.d");
+        assertThat(conf.filtered("a").filtered("f").isEmpty()).isTrue();
+        var prefixed = conf.withPrefix("x").withPrefix("y");
+        assertThat(prefixed.get("y.x.a.b", String.class)).contains("1");
+        assertThat(prefixed.get("x.a.b", String.class)).isEmpty();
+        assertThat(prefixed.inner("y").inner("x.a").keys().toList()).isEqualTo(inner.keys().toList());
+        assertThat(prefixed.inner("y.x.a.b").get("c", String.class)).contains("2");
+        assertThat(conf.withPrefix("x.y").inner("x").keys().toList()).contains("y.a.b");
+        for (Config view : new Config[] { inner, prefixed, conf.filtered("a.b") }) {
+            assertThat(view.materialize().asMap()).isEqualTo(view.asMap());
+            assertThat(view.materialize().toString()).isEqualTo(view.toString());
+        }
+    }
+
+
+    @Test
+    void keysAndEntriesCanBeStreamedInParallel() {
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            properties.put("key." + i, i % 10 == 0 ? "" : String.valueOf(i));
+        }
+        var conf = Config.ofMap(properties);
+        var spliterator = conf.keys().spliterator();
+        assertThat(spliterator.hasCharacteristics(
+            Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.DISTINCT
+        )).isTrue();
+        assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(5_000);
+        var half = spliterator.trySplit();
+        assertThat(half.getExactSizeIfKnown()).isEqualTo(2_500);
+        assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(2_500);
+        assertThat(conf.keys().parallel().toList()).isEqualTo(conf.keys().sorted().toList());
+        assertThat(conf.entries().parallel().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)))
+            .isEqualTo(properties);
+        assertThat(conf.inner("key").entries().count()).isEqualTo(5_000);
+    }
+
+
+    @Test
+    void valuesAreConvertedWithBuiltInConverters() {
+        var conf = Config.ofMap(Map.of(
+            "duration", "PT5S",
+            "path", "/tmp/file",
+            "uri", "http://localhost:8080",
+            "address", "[::1]:8080",
+            "uuid", "00000000-0000-0000-0000-000000000001",
+            "charset", "UTF-8",
+            "hex", "0x1F",
+            "flag", "yes",
+            "unit", "SECONDS"
+        ));
+        assertThat(conf.get("duration", Duration.class)).contains(Duration.ofSeconds(5));
+        assertThat(conf.get("path", Path.class)).contains(Path.of("/tmp/file"));
+        assertThat(conf.get("uri", URI.class)).contains(URI.create("http://localhost:8080"));
+        assertThat(conf.get("address", InetSocketAddress.class))
+            .contains(InetSocketAddress.createUnresolved("::1", 8080));
+        assertThat(conf.get("uuid", UUID.class)).contains(new UUID(0, 1));
+        assertThat(conf.get("charset", Charset.class)).contains(StandardCharsets.UTF_8);
+        assertThat(conf.getInt("hex", 0)).isEqualTo(31);
+        assertThat(conf.getBoolean("flag", false)).isTrue();
+        assertThat(conf.get("unit", TimeUnit.class)).contains(TimeUnit.SECONDS);
+        assertThatCode(() -> conf.get("path", Integer.class)).isInstanceOf(ConfigException.class);
+    }
+
+
+    @Test
+    void customConvertersOverrideBuiltInOnes() {
+        var factory = new ConfigFactory().converter(ValueConverter.of(Duration.class, value -> Duration.ofMinutes(Long.parseLong(value))));
+        var conf = factory.ofMap(Map.of("duration", "2"));
+        assertThat(conf.get("duration", Duration.class)).contains(Duration.ofMinutes(2));
+        assertThat(conf.inner("").get("duration", Duration.class)).contains(Duration.ofMinutes(2));
+        assertThat(Config.ofMap(Map.of("duration", "PT2M")).get("duration", Duration.class)).contains(Duration.ofMinutes(2));
+    }
+
+
+    @Test
+    void customConvertersAreKeptWhenAppending() {
+        var factory = new ConfigFactory().converter(ValueConverter.of(StringBuilder.class, value -> new StringBuilder(value).reverse()));
+        var conf = factory.ofMap(Map.of("text", "abc"));
+        assertThat(conf.append(Config.ofMap(Map.of("other", "def"))).get("text", StringBuilder.class))
+            .hasValueSatisfying(value -> assertThat(value).hasToString("cba"));
+        assertThat(conf.append(Config.ofMap(Map.of("text", "def"))).get("text", StringBuilder.class))
+            .hasValueSatisfying(value -> assertThat(value).hasToString("fed"));
+        assertThat(conf.accordingDefinitions(List.of()).get("text", StringBuilder.class))
+            .hasValueSatisfying(value -> assertThat(value).hasToString("cba"));
+    }
+
+
     @Test
     void transformConfigToMap() {
         var confAsMap = Config.ofMap(Map.of(
@@ -333,6 +589,21 @@ class TestConfigurationFactory {
     }
 
 
+    @Test
+    void mapAndPropertiesSnapshotsAreShared() {
+        var conf = Config.ofMap(Map.of("property.a", "a", "property.b", ""));
+        var map = conf.asMap();
+        assertThat(conf.asMap()).isSameAs(map);
+        assertThat(map).containsExactly(Map.entry("property.a", "a"), Map.entry("property.b", ""));
+        assertThat(map.get("property.c")).isNull();
+        assertThatCode(() -> map.put("property.c", "c")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatCode(() -> map.entrySet().clear()).isInstanceOf(UnsupportedOperationException.class);
+        var properties = conf.asProperties();
+        properties.setProperty("property.c", "c");
+        assertThat(conf.asProperties()).doesNotContainKey("property.c").hasSize(2);
+    }
+
+
     @Test
     void transformConfigToProperties() {
         var confAsProperties = Config.ofMap(Map.of(
@@ -357,6 +628,303 @@ class TestConfigurationFactory {
     }
 
 
+    @ConfigClass
+    public record ServerSettings(@ConfigProperty("server.host") String host, @ConfigProperty("server.port") int port, boolean secure) { }
+
+
+    @ConfigClass
+    static final class ClientSettings {
+
+        private final String url;
+        private final long timeout;
+
+        ClientSettings(@ConfigProperty("client.url") String url, @ConfigProperty("client.timeout") long timeout) {
+            this.url = url;
+            this.timeout = timeout;
+        }
+    }
+
+
+    @Test
+    void recordsAndAnnotatedConstructorsCanBeBound() {
+        var conf = Config.ofMap(Map.of(
+            "server.host", "localhost",
+            "server.port", "8080",
+            "client.url", "http://localhost"
+        ));
+        assertThat(conf.getObject(ServerSettings.class)).isEqualTo(new ServerSettings("localhost", 8080, false));
+        var client = conf.getObject(ClientSettings.class);
+        assertThat(client.url).isEqualTo("http://localhost");
+        assertThat(client.timeout).isZero();
+    }
+
+
+    @ConfigClass
+    record DatasourceSettings(String url, int poolSize, List<String> tags) { }
+
+
+    @ConfigClass
+    record ApplicationSettings(
+        ServerSettings main,
+        @ConfigProperty("datasources") Map<String, DatasourceSettings> datasources,
+        List<ServerSettings> replicas,
+        Map<String, Integer> limits
+    ) { }
+
+
+    @Test
+    void nestedObjectsAndCollectionsCanBeBound() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("main.server.host", "main");
+        properties.put("main.server.port", "80");
+        properties.put("datasources.primary.url", "jdbc:a");
+        properties.put("datasources.primary.poolSize", "5");
+        properties.put("datasources.primary.tags", "x");
+        properties.put("datasources.backup.url", "jdbc:b");
+        for (int i = 0; i < 12; i++) {
+            properties.put("replicas." + i + ".server.host", "replica" + i);
+        }
+        properties.put("limits.read", "1");
+        properties.put("limits.write.max", "2");
+        var settings = Config.ofMap(properties).getObject(ApplicationSettings.class);
+        assertThat(settings.main()).isEqualTo(new ServerSettings("main", 80, false));
+        assertThat(settings.datasources()).containsOnly(
+            Map.entry("backup", new DatasourceSettings("jdbc:b", 0, List.of())),
+            Map.entry("primary", new DatasourceSettings("jdbc:a", 5, List.of("x")))
+        );
+        assertThat(settings.replicas()).hasSize(12);
+        assertThat(settings.replicas().get(10).host()).isEqualTo("replica10");
+        assertThat(settings.limits()).containsOnly(Map.entry("read", 1), Map.entry("write.max", 2));
+        assertThat(Config.ofMap(Map.of()).getObject(ApplicationSettings.class).main()).isNull();
+    }
+
+
+    public interface DatabaseSettings {
+        @ConfigProperty("db.url") String url();
+        int poolSize();
+        double ratio();
+        long timeout();
+        boolean enabled();
+        List<String> tags();
+        Optional<Integer> retries();
+        ServerSettings server();
+        default String description() {
+            return url() + ":" + poolSize();
+        }
+    }
+
+
+    @Test
+    void interfacesCanBeImplementedFromConfiguration() {
+        var conf = Config.ofMap(Map.of(
+            "db.url", "jdbc:x",
+            "poolSize", "10",
+            "ratio", "0.5",
+            "enabled", "true",
+            "tags", "a",
+            "server.server.host", "h"
+        ));
+        var settings = conf.as(DatabaseSettings.class);
+        assertThat(settings.getClass().isHidden()).isTrue();
+        assertThat(settings.url()).isEqualTo("jdbc:x");
+        assertThat(settings.poolSize()).isEqualTo(10);
+        assertThat(settings.ratio()).isEqualTo(0.5);
+        assertThat(settings.timeout()).isZero();
+        assertThat(settings.enabled()).isTrue();
+        assertThat(settings.tags()).containsExactly("a");
+        assertThat(settings.retries()).isEmpty();
+        assertThat(settings.server().host()).isEqualTo("h");
+        assertThat(settings.description()).isEqualTo("jdbc:x:10");
+        assertThat(conf.as(DatabaseSettings.class)).isNotSameAs(settings).hasSameClassAs(settings);
+        Supplier<?> supplier = conf.as(Supplier.class);
+        assertThat(supplier.get()).isNull();
+        // interfaces that cannot be implemented with a hidden class are implemented with a proxy
+        ProxiedSettings proxiedSettings = Config.ofMap(Map.of("name", "x", "level", "HIGH")).as(ProxiedSettings.class);
+        assertThat(Proxy.isProxyClass(proxiedSettings.getClass())).isTrue();
+        assertThat(proxiedSettings.greeting()).isEqualTo("Hello x (HIGH)");
+        assertThatCode(() -> conf.as(String.class)).isInstanceOf(ConfigException.class);
+    }
+
+
+    @Test
+    void registeredBindersTakePrecedence() {
+        var settings = Config.ofMap(Map.of("name", "a")).getObject(TestConfigClassBinder.BoundSettings.class);
+        assertThat(settings.name()).isEqualTo("a");
+        assertThat(settings.boundByService()).isTrue();
+    }
+
+
+    @Test
+    void configClassesCanBeBoundRepeatedly() {
+        var first = Config.ofMap(Map.of("configClass.flag", "true", "counter", "3"))
+            .getObject(TestConfigClass.class);
+        var second = Config.ofMap(Map.of("configClass.number", "1"))
+            .getObject(TestConfigClass.class);
+        assertThat(first.flag()).isTrue();
+        assertThat(first.counter()).isEqualTo(3);
+        assertThat(first.number()).isNull();
+        assertThat(second.flag()).isFalse();
+        assertThat(second.counter()).isEqualTo(-1);
+        assertThat(second.number()).isEqualTo(1);
+        assertThatCode(() -> Config.ofMap(Map.of()).getObject(String.class)).isInstanceOf(ConfigException.class);
+    }
+
+
+    @Test
+    void appendingChainsOfConfigurations() {
+        Config conf = Config.ofMap(Map.of("property.a", "a", "property.b", "b", "property.c", "c"));
+        for (int i = 0; i < 100; i++) {
+            conf = conf.append(Config.ofMap(Map.of("layer." + i, String.valueOf(i), "property.a", "a" + i)));
+        }
+        assertThat(conf.get("property.a", String.class)).contains("a99");
+        assertThat(conf.get("property.b", String.class)).contains("b");
+        assertThat(conf.get("layer.42", String.class)).contains("42");
+        assertThat(conf.keys().count()).isEqualTo(103);
+    }
+
+
+    @Test
+    void appendingEmptyValues() {
+        var empty = Config.ofMap(Map.of("property.a", "", "property.b", ""));
+        var valued = Config.ofMap(Map.of("property.a", "a"));
+        assertThat(empty.append(valued).get("property.a", String.class)).contains("a");
+        assertThat(empty.append(valued).hasProperty("property.b")).isTrue();
+        assertThat(valued.append(empty).hasProperty("property.a")).isFalse();
+        assertThat(valued.append(empty).hasProperty("property.b")).isTrue();
+    }
+
+
+    @Test
+    void typedValuesAreConvertedOnlyOnce() {
+        var conf = (ImmutableConfiguration) Config.ofMap(Map.of("property.a", "7"));
+        assertThat(conf.get("property.a", Integer.class)).contains(7);
+        assertThat(conf.get("property.a", Integer.class)).contains(7);
+        assertThat(conf.get("property.a", String.class)).contains("7");
+        assertThat(conf.get("property.b", Integer.class)).isEmpty();
+        assertThat(conf.get("property.b", Integer.class)).isEmpty();
+        assertThat(conf.cacheMisses()).isEqualTo(3);
+        assertThat(conf.cacheHits()).isEqualTo(2);
+    }
+
+
+    @Test
+    void multiValuedPropertiesAreConvertedOnlyOnce() {
+        var conf = Config.ofMap(Map.of("ports", "80,443,80", "hosts", "a,b"));
+        var ports = conf.getList("ports", Integer.class);
+        assertThat(ports).containsExactly(80, 443, 80);
+        assertThat(conf.getList("ports", Integer.class)).isSameAs(ports);
+        assertThat(conf.getList("ports", String.class)).containsExactly("80", "443", "80");
+        assertThat(conf.getSet("ports", Integer.class)).containsExactly(80, 443)
+            .isSameAs(conf.getSet("ports", Integer.class));
+        assertThat(conf.getStream("hosts", String.class)).containsExactly("a", "b");
+        assertThatCode(() -> ports.add(8080)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatCode(() -> conf.getSet("hosts", String.class).clear())
+            .isInstanceOf(UnsupportedOperationException.class);
+
+        IntArray intPorts = conf.getIntArray("ports");
+        assertThat(intPorts).isEqualTo(IntArray.of(80, 443, 80)).isSameAs(conf.getIntArray("ports"));
+        assertThat(intPorts.get(1)).isEqualTo(443);
+        intPorts.toArray()[0] = 0;
+        assertThat(conf.getIntArray("ports").toArray()).containsExactly(80, 443, 80);
+        assertThat(conf.getLongArray("ports").stream()).containsExactly(80L, 443L, 80L);
+        assertThat(conf.getLongArray("ports")).isSameAs(conf.getLongArray("ports"));
+        assertThat(conf.getIntArray("missing").isEmpty()).isTrue();
+        assertThat(conf.getSet("missing", String.class)).isEmpty();
+    }
+
+
+    @Test
+    void nestedPropertiesCanBeReadAsMaps() {
+        var conf = Config.ofMap(Map.of(
+            "limits", "",
+            "limits.read", "100",
+            "limits.write", "20",
+            "limits.admin.delete", "1",
+            "limitsExceeded", "true"
+        ));
+        var limits = conf.getMap("limits", Integer.class);
+        assertThat(limits).containsExactly(
+            Map.entry("admin.delete", 1),
+            Map.entry("read", 100),
+            Map.entry("write", 20)
+        );
+        assertThat(conf.getMap("limits", Integer.class)).isSameAs(limits);
+        assertThat(conf.getMap("limits", String.class)).containsEntry("read", "100");
+        assertThat(conf.getMap("limits.admin", Long.class)).containsExactly(Map.entry("delete", 1L));
+        assertThat(conf.getMap("missing", String.class)).isEmpty();
+        assertThatCode(() -> limits.put("other", 0)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+
+    @Test
+    void severalKeysCanBeReadAtOnce() {
+        var port = Config.key("server.port");
+        var host = Config.key("server.host");
+        var secure = Config.key("server.secure");
+        var missing = Config.key("server.missing");
+        var reader = ConfigReader.builder()
+            .add(port, Integer.class)
+            .add(host, String.class)
+            .add(secure, Boolean.class)
+            .add(missing, Long.class)
+            .build();
+        var conf = Config.ofMap(Map.of("server.port", "8080", "server.host", "localhost", "server.secure", "yes"));
+        var values = conf.read(reader);
+        assertThat(values.getInt(port, 0)).isEqualTo(8080);
+        assertThat(values.get(host, String.class)).contains("localhost");
+        assertThat(values.getBoolean(secure, false)).isTrue();
+        assertThat(values.getLong(missing, 5L)).isEqualTo(5L);
+        assertThat(values.hasValue(missing)).isFalse();
+        assertThat(values.toString()).isEqualTo(
+            "{server.port=8080, server.host=localhost, server.secure=true, server.missing=null}"
+        );
+        assertThat(conf.read(host, port).getString(port)).contains("8080");
+        assertThatCode(() -> values.get(port, String.class))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Key server.port was read as java.lang.Integer, not as java.lang.String");
+        assertThatCode(() -> values.getInt(Config.key("other"), 0))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Key other is not read by this reader");
+        assertThatCode(() -> values.getInt(missing, 0)).doesNotThrowAnyException();
+
+        var timeout = Config.key("server.timeout");
+        var ratio = Config.key("server.ratio");
+        var primitives = Config.ofMap(Map.of("server.port", "8080", "server.timeout", "5000000000", "server.ratio", "0.5"))
+            .read(ConfigReader.builder().add(port, int.class).add(timeout, Long.class).add(ratio, Double.class).build());
+        assertThat(primitives.get(port, int.class)).contains(8080);
+        assertThat(primitives.getLong(port, 0L)).isEqualTo(8080L);
+        assertThat(primitives.getLong(timeout, 0L)).isEqualTo(5_000_000_000L);
+        assertThatCode(() -> primitives.getInt(timeout, 0))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Key server.timeout was read as java.lang.Long, not as an int");
+        assertThatCode(() -> primitives.getLong(ratio, 0L))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Key server.ratio was read as java.lang.Double, not as a long");
+        assertThatCode(() -> ConfigReader.of(port, Config.key("server.port")))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Key server.port is read more than once");
+    }
+
+
+    @Test
+    void keyHandlesCanBeReusedAmongConfigurations() {
+        var port = Config.key("server.port");
+        var missing = Config.key("server.missing");
+        var conf = Config.ofMap(Map.of("server.port", "8080", "server.host", "localhost"));
+        assertThat(conf.getInt(port, 0)).isEqualTo(8080);
+        assertThat(conf.getInt(port, 0)).isEqualTo(8080);
+        assertThat(conf.hasProperty(port)).isTrue();
+        assertThat(conf.hasProperty(missing)).isFalse();
+        assertThat(conf.getString(missing)).isEmpty();
+
+        var appended = conf.append(Config.ofMap(Map.of("server.port", "9090")));
+        assertThat(appended.getInt(port, 0)).isEqualTo(9090);
+        assertThat(conf.filtered("server").getInt(port, 0)).isEqualTo(8080);
+        assertThat(conf.inner("server").getInt(Config.key("port"), 0)).isEqualTo(8080);
+        assertThat(conf.getInt(port, 0)).isEqualTo(8080);
+    }
+
+
     private void assertExpectedPropertiesExist(Config conf) {
 
         System.out.println(conf);
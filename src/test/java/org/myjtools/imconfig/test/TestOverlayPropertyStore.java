@@ -0,0 +1,132 @@
+package org.myjtools.imconfig.test;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.PropertyDefinition;
+import org.myjtools.imconfig.internal.ImmutableConfiguration;
+import org.myjtools.imconfig.internal.OverlayPropertyStore;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class TestOverlayPropertyStore {
+
+
+    @AfterEach
+    void restoreDefaults() {
+        Config.factory.maxOverlayDepth(16).maxOverlayLookups(10_000);
+    }
+
+
+    @Test
+    void lazyLookupsMatchTheMergedResult() {
+        var random = new Random(7);
+        Config conf = Config.empty();
+        Map<String, String> expected = new HashMap<>();
+        for (int layer = 0; layer < 12; layer++) {
+            Map<String, String> delta = new HashMap<>();
+            for (int i = 0; i < 20; i++) {
+                delta.put("key." + random.nextInt(40), random.nextInt(3) == 0 ? "" : layer + "-" + i);
+            }
+            delta.forEach((key, value) -> {
+                String existing = expected.get(key);
+                if (!value.isEmpty() || existing == null) {
+                    expected.put(key, value);
+                } else if (!existing.isEmpty()) {
+                    expected.remove(key);
+                }
+            });
+            conf = conf.append(Config.ofMap(delta));
+        }
+        for (int i = 0; i < 40; i++) {
+            String key = "key." + i;
+            assertThat(conf.hasProperty(key)).as(key).isEqualTo(expected.containsKey(key));
+            String value = expected.get(key);
+            assertThat(conf.get(key, String.class).orElse(null))
+                .as(key)
+                .isEqualTo(value == null || value.isEmpty() ? null : value);
+        }
+        assertThat(conf.asMap()).isEqualTo(expected);
+    }
+
+
+    @Test
+    void overlaysAreFlattenedWhenTooDeep() throws InterruptedException {
+        Config.factory.maxOverlayDepth(3);
+        Config conf = Config.ofMap(Map.of("a", "0"));
+        for (int i = 1; i <= 3; i++) {
+            conf = conf.append(Config.ofMap(Map.of("a", String.valueOf(i))));
+        }
+        var store = overlay(conf);
+        awaitFlattened(store);
+        assertThat(store.depth()).isEqualTo(1);
+        assertThat(conf.get("a", String.class)).contains("3");
+        assertThat(overlay(conf.append(Config.ofMap(Map.of("b", "b")))).depth()).isEqualTo(2);
+    }
+
+
+    @Test
+    void overlaysAreFlattenedWhenLookedUpOften() throws InterruptedException {
+        Config.factory.maxOverlayLookups(10);
+        Config conf = Config.ofMap(Map.of("a", "0")).append(Config.ofMap(Map.of("b", "1")));
+        var store = overlay(conf);
+        assertThat(store.depth()).isEqualTo(2);
+        for (int i = 0; i < 20; i++) {
+            assertThat(conf.hasProperty("a")).isTrue();
+        }
+        awaitFlattened(store);
+        assertThat(conf.get("b", String.class)).contains("1");
+    }
+
+
+    @Test
+    void typedReadsDoNotFlattenOverlays() {
+        Config conf = Config.ofMap(Map.of("a", "1", "list", "x")).append(Config.ofMap(Map.of("b", "2")));
+        var store = overlay(conf);
+        assertThat(conf.getString("a")).contains("1");
+        assertThat(conf.getInt("b", 0)).isEqualTo(2);
+        assertThat(conf.get(Config.key("a"), Integer.class)).contains(1);
+        assertThat(conf.getList("list", String.class)).containsExactly("x");
+        assertThat(store.isFlattened()).isFalse();
+        assertThat(conf.keys()).containsExactly("a", "b", "list");
+        assertThat(store.isFlattened()).isTrue();
+    }
+
+
+    @Test
+    void mapDefaultsDoNotFlattenOverlays() {
+        var routes = PropertyDefinition.builder("routes").mapType(Map.of(
+            "weight", PropertyDefinition.builder("weight").integerType().defaultValue("1").build()
+        )).build();
+        Config conf = Config.ofMap(Map.of("routes.a.path", "/a"))
+            .append(Config.ofMap(Map.of("routes.b.path", "/b", "routes.b.weight", "5")))
+            .accordingDefinitions(List.of(routes));
+        var store = overlay(conf);
+        assertThat(store.depth()).isEqualTo(3);
+        assertThat(conf.getInt("routes.a.weight", 0)).isEqualTo(1);
+        assertThat(conf.getInt("routes.b.weight", 0)).isEqualTo(5);
+        assertThat(store.isFlattened()).isFalse();
+        assertThat(overlay(conf.append(Config.ofMap(Map.of("routes.c.path", "/c")))).depth()).isEqualTo(4);
+    }
+
+
+    private static OverlayPropertyStore overlay(Config conf) {
+        return (OverlayPropertyStore) ((ImmutableConfiguration) conf).store();
+    }
+
+
+    private static void awaitFlattened(OverlayPropertyStore store) throws InterruptedException {
+        for (int i = 0; i < 500 && !store.isFlattened(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(store.isFlattened()).isTrue();
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.myjtools.imconfig.test;
+
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.ConfigKey;
+import org.myjtools.imconfig.ConfigReader;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+
+class TestPrimitiveAccessors {
+
+    private static final int ITERATIONS = 100_000;
+    private static final int CONFIGURATIONS = 1_000;
+    private static final int BATCH_SIZE = 50;
+
+    private final Config conf = Config.ofMap(Map.of(
+        "server.port", "8080",
+        "server.timeout", "30000",
+        "server.ratio", "0.75",
+        "server.secure", "true",
+        "server.idle", "1.5s",
+        "server.buffer", "64KiB"
+    ));
+
+
+    @Test
+    void primitiveAccessorsReturnValuesOrDefaults() {
+        assertThat(conf.getInt("server.port", 80)).isEqualTo(8080);
+        assertThat(conf.getInt("server.missing", 80)).isEqualTo(80);
+        assertThat(conf.getLong("server.timeout", 0L)).isEqualTo(30000L);
+        assertThat(conf.getLong("server.missing", 5L)).isEqualTo(5L);
+        assertThat(conf.getDouble("server.ratio", 0.0)).isEqualTo(0.75);
+        assertThat(conf.getDouble("server.missing", 1.5)).isEqualTo(1.5);
+        assertThat(conf.getBoolean("server.secure", false)).isTrue();
+        assertThat(conf.getBoolean("server.missing", true)).isTrue();
+    }
+
+
+    @Test
+    void optionalPrimitiveAccessorsAreEmptyForMissingKeys() {
+        assertThat(conf.getOptionalInt("server.port")).isEqualTo(OptionalInt.of(8080));
+        assertThat(conf.getOptionalInt("server.missing")).isEmpty();
+        assertThat(conf.getOptionalLong("server.timeout")).isEqualTo(OptionalLong.of(30000L));
+        assertThat(conf.getOptionalLong("server.missing")).isEmpty();
+        assertThat(conf.getOptionalDouble("server.ratio")).isEqualTo(OptionalDouble.of(0.75));
+        assertThat(conf.getOptionalDouble("server.missing")).isEmpty();
+    }
+
+
+    @Test
+    void durationAndSizeAccessorsReturnNanosAndBytes() {
+        assertThat(conf.getDurationNanos("server.idle", 0L)).isEqualTo(1_500_000_000L);
+        assertThat(conf.getDurationNanos(Config.key("server.idle"), 0L)).isEqualTo(1_500_000_000L);
+        assertThat(conf.getDurationNanos("server.timeout", 0L)).isEqualTo(30_000_000_000L);
+        assertThat(conf.getDurationNanos("server.missing", 7L)).isEqualTo(7L);
+        assertThat(conf.getSizeBytes("server.buffer", 0L)).isEqualTo(65_536L);
+        assertThat(conf.getSizeBytes(Config.key("server.buffer"), 0L)).isEqualTo(65_536L);
+        assertThat(conf.getSizeBytes("server.missing", 7L)).isEqualTo(7L);
+        assertThat(conf.get("server.idle", Duration.class)).hasValue(Duration.ofMillis(1500));
+        assertThatCode(() -> conf.getSizeBytes("server.secure", 0L))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Invalid size for property server.secure: true");
+    }
+
+
+    @Test
+    void cachedPrimitiveReadsDoNotAllocate() {
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        readPrimitives(ITERATIONS);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long checksum = readPrimitives(ITERATIONS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertThat(checksum).isNotZero();
+        assertThat(allocated / ITERATIONS).as("bytes allocated per read").isZero();
+    }
+
+
+    /*
+     * Reading a batch of keys from configurations that have not been read yet should
+     * allocate less than reading the same keys one by one
+     */
+    @Test
+    void batchReadsAllocateLessThanSingleReads() {
+        var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        var keys = IntStream.range(0, BATCH_SIZE).mapToObj(i -> Config.key("key." + i)).toList();
+        var builder = ConfigReader.builder();
+        keys.forEach(key -> builder.add(key, Long.class));
+        var reader = builder.build();
+        var properties = IntStream.range(0, BATCH_SIZE).boxed()
+            .collect(Collectors.toMap(i -> "key." + i, i -> String.valueOf(i * 1000)));
+
+        long checksum = 0;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            checksum += readOneByOne(configurations(properties), keys);
+            checksum += readInBatch(configurations(properties), reader);
+        }
+        var singleConfigurations = configurations(properties);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long singleChecksum = readOneByOne(singleConfigurations, keys);
+        long singleAllocated = threads.getThreadAllocatedBytes(threadId) - before;
+        var batchConfigurations = configurations(properties);
+        before = threads.getThreadAllocatedBytes(threadId);
+        long batchChecksum = readInBatch(batchConfigurations, reader);
+        long batchAllocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertThat(checksum).isNotZero();
+        assertThat(batchChecksum).isEqualTo(singleChecksum);
+        assertThat(batchAllocated).as("bytes allocated by batch reads").isLessThan(singleAllocated);
+    }
+
+
+    private static List<Config> configurations(Map<String, String> properties) {
+        return IntStream.range(0, CONFIGURATIONS).mapToObj(i -> Config.ofMap(properties)).toList();
+    }
+
+
+    private static long readOneByOne(List<Config> configurations, List<ConfigKey> keys) {
+        long checksum = 0;
+        for (Config configuration : configurations) {
+            for (ConfigKey key : keys) {
+                checksum += configuration.getLong(key, 0L);
+            }
+        }
+        return checksum;
+    }
+
+
+    private static long readInBatch(List<Config> configurations, ConfigReader reader) {
+        long checksum = 0;
+        for (Config configuration : configurations) {
+            var values = configuration.read(reader);
+            for (int position = 0; position < reader.size(); position++) {
+                checksum += values.getLong(reader.key(position), 0L);
+            }
+        }
+        return checksum;
+    }
+
+
+    private long readPrimitives(int iterations) {
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            checksum += conf.getInt("server.port", 0);
+            checksum += conf.getLong("server.timeout", 0L);
+            checksum += (long) conf.getDouble("server.ratio", 0.0);
+            checksum += conf.getBoolean("server.secure", false) ? 1 : 0;
+            checksum += conf.getOptionalInt("server.port").orElse(0);
+            checksum += conf.getOptionalLong("server.timeout").orElse(0L);
+            checksum += conf.getDurationNanos("server.idle", 0L);
+            checksum += conf.getSizeBytes("server.buffer", 0L);
+        }
+        return checksum;
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.myjtools.imconfig.test;
+
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.convert.DefaultListDelimiterHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.internal.PropertiesParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+
+class TestPropertiesParser {
+
+    private static final String CONTENT = """
+        # comment
+        ! another comment
+           indented.key = value with trailing spaces  \s
+        repeated=1
+        repeated=2
+        colon : separated
+        whitespace separated
+        escaped\\=key=escaped equals
+        space\\ key=value
+        continued=first \\
+            second
+        escapes=tab\\there\\nnew line \\u0041 \\\\ backslash \\q unknown \\:\\=\\#\\!
+        empty=
+        alone
+        list=x,y , z
+        escaped.list=x\\,y,z
+        escaped.backslash=a\\\\,b
+        double==value
+        not.comment=x#y
+        interpolated=${repeated}-${whitespace}
+        nested=${interpolated}!
+        unresolved=${missing}
+        system=${sys:java.specification.version}
+        trailing.backslash=value\\\\
+        last=after
+        """;
+
+
+    @ParameterizedTest
+    @ValueSource(chars = { 0, ',' })
+    void parsedPropertiesAreTheSameAsPropertiesConfiguration(char separator) throws Exception {
+        assertThat(parse(CONTENT, separator)).isEqualTo(parseWithPropertiesConfiguration(CONTENT, separator));
+    }
+
+
+    @Test
+    void linesCanEndWithAnyTerminator() throws IOException {
+        var store = new PropertiesParser((char) 0).parse(new StringReader("a=1\r\nb=2\rc=3\\\r\n  4\nd=5"));
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(store.first(store.indexOf("c"))).isEqualTo("34");
+        assertThat(store.first(store.indexOf("d"))).isEqualTo("5");
+    }
+
+
+    @Test
+    void malformedUnicodeEscapesAreRejected() {
+        assertThatCode(() -> new PropertiesParser((char) 0).parse(new StringReader("a=\\u00zz")))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Malformed \\uxxxx encoding in properties file");
+    }
+
+
+    @Test
+    void largeFilesAreParsedLikePropertiesConfiguration() throws Exception {
+        String content = largeContent();
+        assertThat(parse(content, ','))
+            .hasSize(100_000)
+            .isEqualTo(parseWithPropertiesConfiguration(content, ','));
+    }
+
+
+    /*
+     * 100k lines, also used by the benchmarks
+     */
+    static String largeContent() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("service.module").append(i % 100).append(".property").append(i)
+                .append(" = value number ").append(i).append('\n');
+        }
+        return content.toString();
+    }
+
+
+    private static Map<String, List<String>> parse(String content, char separator) throws IOException {
+        var store = new PropertiesParser(separator).parse(new StringReader(content));
+        Map<String, List<String>> properties = new TreeMap<>();
+        for (int position = 0; position < store.size(); position++) {
+            String key = store.key(position);
+            properties.put(key, store.values(key));
+        }
+        return properties;
+    }
+
+
+    private static Map<String, List<String>> parseWithPropertiesConfiguration(String content, char separator)
+    throws Exception {
+        var configuration = new PropertiesConfiguration();
+        if (separator != 0) {
+            configuration.setListDelimiterHandler(new DefaultListDelimiterHandler(separator));
+        }
+        configuration.read(new StringReader(content));
+        Map<String, List<String>> properties = new TreeMap<>();
+        configuration.getKeys().forEachRemaining(key -> properties.put(
+            key,
+            configuration.getList(String.class, key).stream().filter(value -> !value.isEmpty()).toList()
+        ));
+        return properties;
+    }
+
+}
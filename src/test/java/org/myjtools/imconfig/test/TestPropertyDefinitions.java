@@ -6,6 +6,7 @@ import org.myjtools.imconfig.Config;
 import org.myjtools.imconfig.ConfigException;
 import org.myjtools.imconfig.PropertyDefinition;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.PatternSyntaxException;
@@ -266,6 +267,68 @@ import static org.assertj.core.api.Assertions.assertThatCode;
 
 
 
+    @Test
+     void testDurationWithBoundsOnlyAcceptsDurationsInRange() {
+        var definition = PropertyDefinition.builder()
+            .property("test")
+            .durationType(Duration.ofMillis(100), Duration.ofMinutes(1))
+            .build();
+        assertThat(definition.validate("")).isEmpty();
+        assertThat(definition.validate("250ms")).isEmpty();
+        assertThat(definition.validate("1.5s")).isEmpty();
+        assertThat(definition.validate("PT30S")).isEmpty();
+        assertThat(definition.validate("1m")).isEmpty();
+        assertThat(definition.validate("500")).isEmpty();
+        assertThat(definition.validate("99ms")).isNotEmpty();
+        assertThat(definition.validate("2h")).isNotEmpty();
+        assertThat(definition.validate("10 parsecs")).isNotEmpty();
+        assertThat(definition.validate("fast")).isNotEmpty();
+    }
+
+
+    @Test
+     void testSizeWithBoundsOnlyAcceptsSizesInRange() {
+        var definition = PropertyDefinition.builder()
+            .property("test")
+            .sizeType(1024, 1_000_000)
+            .build();
+        assertThat(definition.validate("")).isEmpty();
+        assertThat(definition.validate("1KiB")).isEmpty();
+        assertThat(definition.validate("64 KB")).isEmpty();
+        assertThat(definition.validate("1MB")).isEmpty();
+        assertThat(definition.validate("1MiB")).isNotEmpty();
+        assertThat(definition.validate("1023")).isNotEmpty();
+        assertThat(definition.validate("12 parsecs")).isNotEmpty();
+    }
+
+
+    @Test
+     void mapEntriesAreValidatedAndDefaultedForEveryElement() {
+        var datasources = PropertyDefinition.builder("datasources")
+            .required()
+            .mapType(Map.of(
+                "url", PropertyDefinition.builder("url").textType().required().build(),
+                "pool", PropertyDefinition.builder("pool").integerType(1, 10).defaultValue("4").build()
+            ))
+            .build();
+        var configuration = Config.withDefinitions(List.of(datasources))
+            .append(Config.ofMap(Map.of(
+                "datasources.main.url", "jdbc:h2:mem:main",
+                "datasources.audit.pool", "20"
+            )));
+        assertThat(configuration.getInt("datasources.main.pool", 0)).isEqualTo(4);
+        assertThat(configuration.getInt("datasources.audit.pool", 0)).isEqualTo(20);
+        assertThat(configuration.getMap("datasources.main", String.class))
+            .containsExactly(Map.entry("pool", "4"), Map.entry("url", "jdbc:h2:mem:main"));
+        assertThat(configuration.validations()).containsOnly(
+            Map.entry("datasources.audit.url", List.of("Property is required but not present")),
+            Map.entry("datasources.audit.pool", List.of("Invalid value '20', expected: Integer number between 1 and 10 [default: 4]"))
+        );
+        assertThat(Config.withDefinitions(List.of(datasources)).validations())
+            .containsOnly(Map.entry("datasources", List.of("Property is required but not present")));
+    }
+
+
     @Test
      void validationsOfConfiguration() {
         var definitions = definitions();
@@ -0,0 +1,129 @@
+package org.myjtools.imconfig.test;
+
+
+import org.junit.jupiter.api.Test;
+import org.myjtools.imconfig.internal.FlatPropertyStore;
+import org.myjtools.imconfig.internal.PropertyTrie;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+class TestPropertyStore {
+
+
+    @Test
+    void keysAreSortedAndIndexed() {
+        var store = FlatPropertyStore.builder()
+            .add("b.key", "b")
+            .add("a.key", "a")
+            .add("c.key", "c")
+            .build();
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(List.of(store.key(0), store.key(1), store.key(2)))
+            .containsExactly("a.key", "b.key", "c.key");
+        assertThat(store.indexOf("b.key")).isEqualTo(1);
+        assertThat(store.indexOf("d.key")).isEqualTo(-1);
+    }
+
+
+    @Test
+    void repeatedKeysAccumulateValues() {
+        var store = FlatPropertyStore.builder()
+            .add("key", "a")
+            .add("key", "b")
+            .build();
+        assertThat(store.values("key")).containsExactly("a", "b");
+        assertThat(store.first(store.indexOf("key"))).isEqualTo("a");
+    }
+
+
+    @Test
+    void emptyValuesAreStoredAsValuelessKeys() {
+        var store = FlatPropertyStore.builder()
+            .add("key", "")
+            .build();
+        assertThat(store.contains("key")).isTrue();
+        assertThat(store.values("key")).isEmpty();
+        assertThat(store.first(store.indexOf("key"))).isNull();
+    }
+
+
+    @Test
+    void lookupWorksWithManyKeys() {
+        var builder = FlatPropertyStore.builder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.add("key." + i, String.valueOf(i));
+        }
+        var store = builder.build();
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(store.first(store.indexOf("key." + i))).isEqualTo(String.valueOf(i));
+        }
+    }
+
+
+
+    @Test
+    void trieKeepsPreviousVersionsUnchanged() {
+        var base = PropertyTrie.EMPTY
+            .with("a", new String[] { "1" })
+            .with("b", new String[] { "2" });
+        var derived = base.with("a", new String[] { "3" }).without("b");
+        assertThat(base.values("a")).containsExactly("1");
+        assertThat(base.values("b")).containsExactly("2");
+        assertThat(base.size()).isEqualTo(2);
+        assertThat(derived.values("a")).containsExactly("3");
+        assertThat(derived.contains("b")).isFalse();
+        assertThat(derived.size()).isEqualTo(1);
+    }
+
+
+    @Test
+    void trieHandlesHashCollisions() {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        var trie = PropertyTrie.EMPTY
+            .with("Aa", new String[] { "1" })
+            .with("BB", new String[] { "2" })
+            .with("C", new String[] { "3" });
+        assertThat(trie.values("Aa")).containsExactly("1");
+        assertThat(trie.values("BB")).containsExactly("2");
+        trie = trie.without("Aa");
+        assertThat(trie.contains("Aa")).isFalse();
+        assertThat(trie.values("BB")).containsExactly("2");
+        assertThat(trie.values("C")).containsExactly("3");
+        assertThat(trie.size()).isEqualTo(2);
+    }
+
+
+    @Test
+    void trieBehavesLikeAMap() {
+        var random = new Random(42);
+        Map<String, String> expected = new HashMap<>();
+        var trie = PropertyTrie.EMPTY;
+        for (int i = 0; i < 20_000; i++) {
+            String key = "key." + random.nextInt(5_000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                trie = trie.without(key);
+            } else {
+                String value = String.valueOf(i);
+                expected.put(key, value);
+                trie = trie.with(key, new String[] { value });
+            }
+        }
+        assertThat(trie.size()).isEqualTo(expected.size());
+        for (var entry : expected.entrySet()) {
+            assertThat(trie.values(entry.getKey())).containsExactly(entry.getValue());
+        }
+        var sorted = trie.sorted();
+        assertThat(sorted.size()).isEqualTo(expected.size());
+        for (int position = 1; position < sorted.size(); position++) {
+            assertThat(sorted.key(position - 1)).isLessThan(sorted.key(position));
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package org.myjtools.imconfig.test;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.myjtools.imconfig.Config;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.PropertyDefinition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+
+class TestSnapshot {
+
+    private static final List<PropertyDefinition> DEFINITIONS = List.of(
+        PropertyDefinition.builder("server.name").description("Name of the server").textType("[a-z]+").required().build(),
+        PropertyDefinition.builder("server.port").integerType(1, 65535).defaultValue("8080").build(),
+        PropertyDefinition.builder("server.ratio").decimalType(0.0, null).build(),
+        PropertyDefinition.builder("server.mode").enumType("fast", "safe").build(),
+        PropertyDefinition.builder("server.enabled").booleanType().build(),
+        PropertyDefinition.builder("server.timeout").durationType(Duration.ofMillis(1), null).build(),
+        PropertyDefinition.builder("server.buffer").sizeType(null, 1 << 20).build(),
+        PropertyDefinition.builder("server.tags").textType().multivalue().build(),
+        PropertyDefinition.builder("routes").mapType(Map.of(
+            "path", PropertyDefinition.builder("path").textType().required().build(),
+            "weight", PropertyDefinition.builder("weight").integerType().defaultValue("1").build()
+        )).build()
+    );
+
+
+    @Test
+    void snapshotsKeepPropertiesAndDefinitions(@TempDir Path folder) {
+        Config config = Config.ofMap(Map.of(
+            "server.name", "main",
+            "server.ratio", "0.5",
+            "server.timeout", "250ms",
+            "server.tags", List.of("a", "b", "ñ"),
+            "routes.first.path", "/first",
+            "routes.second.path", "/second"
+        )).accordingDefinitions(DEFINITIONS);
+        Path snapshot = folder.resolve("config.snapshot");
+        config.writeSnapshot(snapshot);
+
+        Config loaded = Config.ofSnapshot(snapshot);
+        assertThat(loaded.asMap()).isEqualTo(config.asMap());
+        assertThat(loaded.getList("server.tags", String.class)).containsExactly("a", "b", "ñ");
+        assertThat(loaded.getInt("routes.second.weight", 0)).isEqualTo(1);
+        assertThat(loaded.getDefinitions()).containsOnlyKeys(config.getDefinitions().keySet());
+        assertThat(loaded.getDefinitionsToString()).isEqualTo(config.getDefinitionsToString());
+        assertThat(loaded.validations()).isEmpty();
+        assertThat(loaded.accordingDefinitions(List.of()).append(Config.ofMap(Map.of("server.port", "0"))).validations())
+            .containsKey("server.port");
+    }
+
+
+    @Test
+    void invalidConfigurationsAreNotWritten(@TempDir Path folder) {
+        Config config = Config.ofMap(Map.of("server.port", "0")).accordingDefinitions(DEFINITIONS);
+        Path snapshot = folder.resolve("config.snapshot");
+        assertThatCode(() -> config.writeSnapshot(snapshot)).isInstanceOf(ConfigException.class);
+        assertThat(snapshot).doesNotExist();
+    }
+
+
+    @Test
+    void corruptedSnapshotsAreRejected(@TempDir Path folder) throws IOException {
+        Path snapshot = folder.resolve("config.snapshot");
+        Config.ofMap(Map.of("key", "value")).writeSnapshot(snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+        assertThatCode(() -> Config.ofSnapshot(snapshot))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Checksum mismatch in configuration snapshot " + snapshot);
+
+        bytes[5] = 99;
+        Files.write(snapshot, bytes);
+        assertThatCode(() -> Config.ofSnapshot(snapshot))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("Unsupported version 99 of configuration snapshot " + snapshot);
+
+        Files.writeString(snapshot, "key: value\n");
+        assertThatCode(() -> Config.ofSnapshot(snapshot))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage(snapshot + " is not a configuration snapshot");
+    }
+
+
+    @Test
+    void malformedSnapshotsWithValidChecksumAreRejected(@TempDir Path folder) throws IOException {
+        Path snapshot = folder.resolve("config.snapshot");
+        Config.ofMap(Map.of("key", "value")).writeSnapshot(snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // string count, length of the first string, and key count
+        for (int[] corruption : new int[][] { {16, -1}, {16, Integer.MAX_VALUE}, {20, -5}, {36, -1} }) {
+            Files.write(snapshot, withChecksum(bytes, corruption[0], corruption[1]));
+            assertThatCode(() -> Config.ofSnapshot(snapshot))
+                .isInstanceOf(ConfigException.class)
+                .hasMessage("Malformed configuration snapshot " + snapshot);
+        }
+    }
+
+
+    private static byte[] withChecksum(byte[] bytes, int offset, int value) {
+        ByteBuffer corrupted = ByteBuffer.wrap(bytes.clone()).putInt(offset, value);
+        CRC32 crc = new CRC32();
+        crc.update(corrupted.array(), 16, bytes.length - 16);
+        return corrupted.putInt(12, (int) crc.getValue()).array();
+    }
+
+
+    @Test
+    void largeSnapshotsAreLoadedLikeTheOriginalFiles(@TempDir Path folder) throws IOException {
+        Path yaml = Files.writeString(folder.resolve("config.yaml"), largeContent());
+        Path snapshot = folder.resolve("config.snapshot");
+        Config parsed = Config.ofPath(yaml).accordingDefinitions(DEFINITIONS.subList(1, 8)).validate();
+        parsed.writeSnapshot(snapshot);
+        Config loaded = Config.ofSnapshot(snapshot);
+        assertThat(loaded.asMap()).hasSize(20_000 + 1).isEqualTo(parsed.asMap());
+        assertThat(loaded.getDefinitionsToString()).isEqualTo(parsed.getDefinitionsToString());
+    }
+
+
+    /*
+     * 20k keys, also used by the benchmarks
+     */
+    static String largeContent() {
+        StringBuilder content = new StringBuilder();
+        for (int module = 0; module < 500; module++) {
+            content.append("module").append(module).append(":\n");
+            for (int property = 0; property < 40; property++) {
+                content.append("  property").append(property).append(": value number ").append(property).append('\n');
+            }
+        }
+        return content.toString();
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.myjtools.imconfig.test;
+
+
+import org.apache.commons.configuration2.FileBasedConfiguration;
+import org.apache.commons.configuration2.JSONConfiguration;
+import org.apache.commons.configuration2.YAMLConfiguration;
+import org.junit.jupiter.api.Test;
+import org.myjtools.imconfig.ConfigException;
+import org.myjtools.imconfig.internal.TreeParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+
+class TestTreeParser {
+
+    private static final String YAML = """
+        a:
+          b: 1
+          c: [x, y]
+          d:
+            - e: 1
+              f: 2
+            - e: 3
+          "dot.key": v
+          "dot.map":
+            inner: w
+          empty:
+          emptystr: ""
+          nul: null
+          nested_list:
+            - [1, 2]
+            - 3
+          list_of_empty: []
+          map_empty: {}
+        top: "a,b , c"
+        bool: true
+        yes_bool: yes
+        octal: 010
+        hex: 0x1F
+        big: 123456789012345678901234567890
+        float: 1.50
+        negative: -2.5e-3
+        multi: |
+          line1
+          line2
+        interpolated: ${top}
+        nested: ${interpolated}!
+        system: ${sys:java.specification.version}
+        quoted: 'x\\,y'
+        defaults: &defaults
+          timeout: 30
+          retries: [1, 2]
+          nested:
+            level: info
+        service:
+          <<: *defaults
+          timeout: 60
+          name: main
+        scalar: &scalar anchored
+        copy: *scalar
+        copies: [*scalar, other]
+        list: &list [p, q]
+        list.copy: *list
+        multiple:
+          <<: [ {timeout: 5, extra: e}, *defaults ]
+          retries: 9
+        """;
+
+    private static final String JSON = """
+        {
+          "a": {
+            "b": 1,
+            "c": ["x", "y"],
+            "d": [ { "e": 1, "f": 2 }, { "e": 3 } ],
+            "dot.key": "v",
+            "emptystr": "",
+            "nul": null,
+            "nested_list": [[1, 2], 3],
+            "list_of_empty": [],
+            "map_empty": {}
+          },
+          "bool": false,
+          "big": 123456789012345678901234567890,
+          "float": 1.50,
+          "exponent": 1e3,
+          "escaped": "tab\\tquote\\"",
+          "<<": "not a merge key in JSON",
+          "interpolated": "${a.b}"
+        }
+        """;
+
+
+    @Test
+    void parsedYamlIsTheSameAsYamlConfiguration() throws Exception {
+        assertThat(parse(TreeParser.yaml(), YAML)).isEqualTo(parseWithCommons(new YAMLConfiguration(), YAML));
+    }
+
+
+    @Test
+    void parsedJsonIsTheSameAsJsonConfiguration() throws Exception {
+        assertThat(parse(TreeParser.json(), JSON)).isEqualTo(parseWithCommons(new JSONConfiguration(), JSON));
+    }
+
+
+    @Test
+    void yamlDatesAreKeptAsWritten() throws IOException {
+        var store = TreeParser.yaml().parse(new StringReader("date: 2020-01-01\n"));
+        assertThat(store.first(store.indexOf("date"))).isEqualTo("2020-01-01");
+    }
+
+
+    @Test
+    void emptyDocumentsHaveNoProperties() throws IOException {
+        assertThat(TreeParser.yaml().parse(new StringReader("")).size()).isZero();
+        assertThat(TreeParser.yaml().parse(new StringReader("# only a comment\n")).size()).isZero();
+    }
+
+
+    @Test
+    void documentsMustBeObjects() {
+        assertThatCode(() -> TreeParser.yaml().parse(new StringReader("- a\n- b\n")))
+            .isInstanceOf(ConfigException.class)
+            .hasMessage("The root of the document must be an object, but found START_ARRAY");
+        assertThatCode(() -> TreeParser.json().parse(new StringReader("{ \"a\": ")))
+            .isInstanceOf(ConfigException.class);
+    }
+
+
+    @Test
+    void nestedAliasesCannotExpandWithoutLimit() {
+        String content = """
+            a: &a [x, x, x, x, x, x, x, x, x, x]
+            b: &b [*a, *a, *a, *a, *a, *a, *a, *a, *a, *a]
+            c: &c [*b, *b, *b, *b, *b, *b, *b, *b, *b, *b]
+            d: &d [*c, *c, *c, *c, *c, *c, *c, *c, *c, *c]
+            e: &e [*d, *d, *d, *d, *d, *d, *d, *d, *d, *d]
+            f: &f [*e, *e, *e, *e, *e, *e, *e, *e, *e, *e]
+            g: [*f, *f, *f, *f, *f, *f, *f, *f, *f, *f]
+            """;
+        assertThatCode(() -> TreeParser.yaml().parse(new StringReader(content)))
+            .isInstanceOf(ConfigException.class)
+            .hasMessageStartingWith("Aliases and merge keys expand to more than 100000 entries");
+    }
+
+
+    @Test
+    void largeDocumentsAreParsedLikeYamlConfiguration() throws Exception {
+        String content = largeContent();
+        assertThat(parse(TreeParser.yaml(), content))
+            .hasSize(40_000)
+            .isEqualTo(parseWithCommons(new YAMLConfiguration(), content));
+    }
+
+
+    /*
+     * 40k keys, also used by the benchmarks. Array elements are never repeated, since
+     * YAMLConfiguration drops repeated scalars.
+     */
+    static String largeContent() {
+        StringBuilder content = new StringBuilder();
+        for (int module = 0; module < 1_000; module++) {
+            content.append("module").append(module).append(":\n");
+            for (int property = 0; property < 20; property++) {
+                content.append("  property").append(property).append(":\n")
+                    .append("    value: value number ").append(property).append('\n')
+                    .append("    sizes: [").append(module).append(", ").append(1_000 + property).append("]\n");
+            }
+        }
+        return content.toString();
+    }
+
+
+    private static Map<String, List<String>> parse(TreeParser parser, String content) throws IOException {
+        var store = parser.parse(new StringReader(content));
+        Map<String, List<String>> properties = new TreeMap<>();
+        for (int position = 0; position < store.size(); position++) {
+            String key = store.key(position);
+            properties.put(key, store.values(key));
+        }
+        return properties;
+    }
+
+
+    private static Map<String, List<String>> parseWithCommons(FileBasedConfiguration configuration, String content)
+    throws Exception {
+        configuration.read(new StringReader(content));
+        Map<String, List<String>> properties = new TreeMap<>();
+        configuration.getKeys().forEachRemaining(key -> properties.put(
+            key,
+            configuration.getList(String.class, key).stream().filter(value -> !value.isEmpty()).toList()
+        ));
+        return properties;
+    }
+
+}
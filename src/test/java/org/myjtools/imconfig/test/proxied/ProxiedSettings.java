@@ -0,0 +1,24 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.test.proxied;
+
+
+import org.myjtools.imconfig.test.proxied.internal.Level;
+
+
+/**
+ * Interface of a package exported (but not open) to the library that returns a type of a
+ * package that is not exported, so it can only be implemented with a proxy
+ */
+public interface ProxiedSettings {
+
+    String name();
+
+    Level level();
+
+    default String greeting() {
+        return "Hello " + name() + " (" + level() + ")";
+    }
+
+}
@@ -0,0 +1,9 @@
+/*
+ * @author Luis Iñesta Gelabert - luiinge@gmail.com
+ */
+package org.myjtools.imconfig.test.proxied.internal;
+
+
+public enum Level {
+    LOW, HIGH
+}